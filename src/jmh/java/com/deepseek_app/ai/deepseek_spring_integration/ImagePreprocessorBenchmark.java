@@ -0,0 +1,64 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each {@link ImagePreprocessor} stage on a 12 MP synthetic receipt photo, fed the
+ * output of the stages before it in the default order, and of the whole pipeline. OCR latency
+ * and accuracy with and without preprocessing are measured by {@link PreprocessingEvaluation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagePreprocessorBenchmark {
+
+    private static final List<String> DEFAULT_STAGES = List.of("grayscale", "crop", "downscale", "binarize", "deskew");
+
+    @Param({"grayscale", "crop", "downscale", "binarize", "deskew", "all"})
+    public String stage;
+
+    private ImagePreprocessor preprocessor;
+    private BufferedImage input;
+
+    @Setup
+    public void prepare() throws IOException {
+        BufferedImage photo = SyntheticReceiptPhotos.render(PreprocessingEvaluation.loadSample("grocery"), 2.5, 42);
+        if ("all".equals(stage)) {
+            preprocessor = preprocessor(DEFAULT_STAGES);
+            input = photo;
+            return;
+        }
+        int index = DEFAULT_STAGES.indexOf(stage.toLowerCase(Locale.ROOT));
+        input = preprocessor(DEFAULT_STAGES.subList(0, index)).process(photo, null);
+        preprocessor = preprocessor(List.of(stage));
+    }
+
+    @Benchmark
+    public BufferedImage process() {
+        return preprocessor.process(input, null);
+    }
+
+    private static ImagePreprocessor preprocessor(List<String> stages) {
+        return new ImagePreprocessor(new SimpleMeterRegistry(), true, stages, 300, 80, 10);
+    }
+}
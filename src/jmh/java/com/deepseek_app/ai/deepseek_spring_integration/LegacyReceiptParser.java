@@ -0,0 +1,107 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The multi-pass parser that used to live in {@link MainView}, kept as the benchmark baseline.
+ * Identical apart from the System.out calls, which would only measure the console.
+ */
+final class LegacyReceiptParser {
+
+    private LegacyReceiptParser() {
+    }
+
+    static MainView.Receipt parse(String ocrText) {
+        return new MainView.Receipt(extractMerchant(ocrText), extractTotal(ocrText), extractLineItems(ocrText));
+    }
+
+    private static String extractMerchant(String ocrText) {
+        String[] patterns = {"Merchant", "Store", "Vendor", "Market", "Receipt from", "MARKET"};
+        for (String pattern : patterns) {
+            int index = ocrText.indexOf(pattern);
+            if (index != -1) {
+                String merchantLine = ocrText.substring(index + pattern.length()).trim();
+                return merchantLine.split("\n")[0].trim();
+            }
+        }
+        return "Unknown Merchant";
+    }
+
+    private static BigDecimal extractTotal(String ocrText) {
+        String[] patterns = {"Subtotal:", "Net Sales:", "Amount Due:", "Grand Total:", "Net Sales:", "Tax:", "Total :"};
+        for (String pattern : patterns) {
+            int index = ocrText.toLowerCase().indexOf(pattern.toLowerCase());
+            if (index != -1) {
+                String totalLine = ocrText.substring(index + pattern.length()).trim();
+                Matcher matcher = Pattern.compile("[\\d,]+(?:\\.\\d{2})?").matcher(totalLine);
+                if (matcher.find()) {
+                    return new BigDecimal(matcher.group().replace(",", ""));
+                }
+            }
+        }
+        throw new IllegalArgumentException("Total amount not found in OCR text");
+    }
+
+    private static List<MainView.LineItem> extractLineItems(String ocrText) {
+        List<MainView.LineItem> lineItems = new ArrayList<>();
+        for (String line : ocrText.split("\n")) {
+            if (line.matches(".*\\$?\\d+(\\.\\d{2})?.*")) {
+                String[] parts = line.split("\\$");
+                if (parts.length >= 2) {
+                    String itemPart = parts[0].trim();
+                    String name = extractFirstUppercaseWordsUntilSpace(itemPart);
+                    if (name.isEmpty()) {
+                        name = extractLineWithoutSpecialChars(itemPart);
+                    }
+                    String pricePart = "$" + parts[1].trim();
+                    int quantity = 1;
+                    if (itemPart.toLowerCase().startsWith("qty")) {
+                        String[] qtyParts = itemPart.split("\\s+");
+                        if (qtyParts.length >= 2) {
+                            try {
+                                quantity = Integer.parseInt(qtyParts[1]);
+                            } catch (NumberFormatException e) {
+                                // default to 1
+                            }
+                        }
+                    }
+                    if (quantity > 0) {
+                        Matcher matcher = Pattern.compile("\\$?([\\d,]+(?:\\.\\d{2})?)").matcher(pricePart);
+                        if (matcher.find()) {
+                            lineItems.add(new MainView.LineItem(name, quantity,
+                                    new BigDecimal(matcher.group(1).replace(",", ""))));
+                        }
+                    }
+                }
+            }
+        }
+        return lineItems;
+    }
+
+    private static String extractLineWithoutSpecialChars(String input) {
+        Matcher matcher = Pattern.compile("[a-zA-Z\\s]+").matcher(input);
+        return matcher.find() ? matcher.group() : "";
+    }
+
+    private static String extractFirstUppercaseWordsUntilSpace(String input) {
+        StringBuilder result = new StringBuilder();
+        for (String word : input.split("\\s+")) {
+            boolean upper = true;
+            for (char ch : word.toCharArray()) {
+                if (!Character.isUpperCase(ch)) {
+                    upper = false;
+                    break;
+                }
+            }
+            if (!upper) {
+                break;
+            }
+            result.append(word).append(" ");
+        }
+        return result.toString().trim();
+    }
+}
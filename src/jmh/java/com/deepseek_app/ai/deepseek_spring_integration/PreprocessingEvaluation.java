@@ -0,0 +1,97 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OCR latency and parsed-receipt accuracy with and without preprocessing. Every sample in
+ * {@code src/jmh/resources/receipts} is rendered as a skewed phone photo and recognised both
+ * ways; accuracy is the share of merchant, total and line items that match parsing the sample
+ * text itself. Needs a local Tesseract:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.deepseek_app.ai.deepseek_spring_integration.PreprocessingEvaluation \
+ *     -Djmh.args=/usr/share/tesseract-ocr/5/tessdata
+ * </pre>
+ */
+public final class PreprocessingEvaluation {
+
+    private static final List<String> SAMPLES = List.of("grocery", "restaurant", "pharmacy", "hardware");
+    private static final double[] SKEWS = {0, 2.5, -4};
+
+    private PreprocessingEvaluation() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String datapath = args.length > 0 ? args[0] : "/usr/share/tesseract-ocr/5/tessdata";
+        TesseractPool tesseract = new TesseractPool(datapath, "eng", 3, 1, 30_000, 500, false);
+        ReceiptParser parser = new ReceiptParser();
+        Map<String, ImagePreprocessor> variants = new LinkedHashMap<>();
+        variants.put("raw", new ImagePreprocessor(new SimpleMeterRegistry(), false, List.of(), 300, 80, 10));
+        variants.put("preprocessed", new ImagePreprocessor(new SimpleMeterRegistry(), true,
+                List.of("grayscale", "crop", "downscale", "binarize", "deskew"), 300, 80, 10));
+
+        System.out.printf("%-12s %6s %-13s %10s %10s %9s%n", "sample", "skew", "variant", "prep ms", "ocr ms", "accuracy");
+        try {
+            for (String sample : SAMPLES) {
+                String text = loadSample(sample);
+                MainView.Receipt expected = parser.parse(text);
+                for (double skew : SKEWS) {
+                    BufferedImage photo = SyntheticReceiptPhotos.render(text, skew, sample.hashCode());
+                    for (Map.Entry<String, ImagePreprocessor> variant : variants.entrySet()) {
+                        long start = System.nanoTime();
+                        BufferedImage image = variant.getValue().process(photo, null);
+                        long prepared = System.nanoTime();
+                        String ocrText = tesseract.recognize(image);
+                        long recognised = System.nanoTime();
+                        System.out.printf("%-12s %6.1f %-13s %10d %10d %8.0f%%%n", sample, skew, variant.getKey(),
+                                TimeUnit.NANOSECONDS.toMillis(prepared - start),
+                                TimeUnit.NANOSECONDS.toMillis(recognised - prepared),
+                                100 * accuracy(parser, expected, ocrText));
+                    }
+                }
+            }
+        } finally {
+            tesseract.shutdown();
+        }
+    }
+
+    private static double accuracy(ReceiptParser parser, MainView.Receipt expected, String ocrText) {
+        MainView.Receipt actual;
+        try {
+            actual = parser.parse(ocrText);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        int fields = 2 + expected.lineItems().size();
+        int correct = 0;
+        if (expected.merchant().equals(actual.merchant())) {
+            correct++;
+        }
+        if (expected.total().compareTo(actual.total()) == 0) {
+            correct++;
+        }
+        for (MainView.LineItem item : expected.lineItems()) {
+            if (actual.lineItems().contains(item)) {
+                correct++;
+            }
+        }
+        return (double) correct / fields;
+    }
+
+    static String loadSample(String name) throws IOException {
+        try (InputStream in = PreprocessingEvaluation.class.getResourceAsStream("/receipts/" + name + ".txt")) {
+            if (in == null) {
+                throw new IOException("Missing corpus file receipts/" + name + ".txt");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of {@link ReceiptParser} against the old multi-pass parser, over the OCR
+ * samples in {@code src/jmh/resources/receipts} and synthetic receipts of growing size. Run
+ * with {@code mvn -Pjmh test-compile exec:exec}; {@code -prof gc} reports the allocation rate
+ * as {@code gc.alloc.rate.norm} (bytes per parse).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptParserBenchmark {
+
+    @Param({"grocery", "restaurant", "pharmacy", "hardware", "synthetic-20", "synthetic-200", "synthetic-2000"})
+    public String corpus;
+
+    private final ReceiptParser parser = new ReceiptParser();
+    private String ocrText;
+
+    @Setup
+    public void load() throws IOException {
+        if (corpus.startsWith("synthetic-")) {
+            ocrText = SyntheticReceipts.generate(Integer.parseInt(corpus.substring("synthetic-".length())), 42);
+            return;
+        }
+        try (InputStream in = getClass().getResourceAsStream("/receipts/" + corpus + ".txt")) {
+            if (in == null) {
+                throw new IOException("Missing corpus file receipts/" + corpus + ".txt");
+            }
+            ocrText = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public MainView.Receipt singlePass() {
+        return parser.parse(ocrText);
+    }
+
+    @Benchmark
+    public MainView.Receipt legacy() {
+        return LegacyReceiptParser.parse(ocrText);
+    }
+}
@@ -0,0 +1,77 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Renders receipt text the way a phone photographs it: 12 MP, the paper covering the middle of
+ * the frame on a darker table, slightly rotated, lit unevenly and with sensor noise.
+ */
+final class SyntheticReceiptPhotos {
+
+    static final int WIDTH = 3024;
+    static final int HEIGHT = 4032;
+
+    private SyntheticReceiptPhotos() {
+    }
+
+    static BufferedImage render(String text, double skewDegrees, long seed) {
+        Random random = new Random(seed);
+        String[] lines = text.split("\n", -1);
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(new Color(92, 68, 52));
+            graphics.fillRect(0, 0, WIDTH, HEIGHT);
+
+            int paperWidth = WIDTH * 3 / 5;
+            int fontSize = paperWidth / 26;
+            int lineHeight = fontSize * 5 / 4;
+            int paperHeight = Math.min(HEIGHT * 9 / 10, (lines.length + 4) * lineHeight);
+            int paperX = (WIDTH - paperWidth) / 2;
+            int paperY = (HEIGHT - paperHeight) / 2;
+
+            graphics.rotate(Math.toRadians(skewDegrees), WIDTH / 2.0, HEIGHT / 2.0);
+            graphics.setPaint(new GradientPaint(paperX, paperY, new Color(246, 244, 236),
+                    paperX + paperWidth, paperY + paperHeight, new Color(188, 184, 172)));
+            graphics.fillRect(paperX, paperY, paperWidth, paperHeight);
+            graphics.setColor(new Color(40, 40, 48));
+            graphics.setFont(new Font(Font.MONOSPACED, Font.PLAIN, fontSize));
+            int y = paperY + 2 * lineHeight;
+            for (String line : lines) {
+                graphics.drawString(line, paperX + fontSize, y);
+                y += lineHeight;
+            }
+        } finally {
+            graphics.dispose();
+        }
+        addNoise(image, random);
+        return image;
+    }
+
+    private static void addNoise(BufferedImage image, Random random) {
+        int[] row = new int[WIDTH];
+        for (int y = 0; y < HEIGHT; y++) {
+            image.getRGB(0, y, WIDTH, 1, row, 0, WIDTH);
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = (int) (random.nextGaussian() * 6);
+                int rgb = row[x];
+                row[x] = clamp(((rgb >> 16) & 0xFF) + noise) << 16
+                        | clamp(((rgb >> 8) & 0xFF) + noise) << 8
+                        | clamp((rgb & 0xFF) + noise);
+            }
+            image.setRGB(0, y, WIDTH, 1, row, 0, WIDTH);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,43 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.Random;
+
+/**
+ * Generates receipt-shaped OCR text of a given size, with the kind of noise Tesseract produces:
+ * mixed-case names, stray symbols, quantity lines and lines without prices.
+ */
+final class SyntheticReceipts {
+
+    private static final String[] WORDS = {"MILK", "BREAD", "Eggs", "APPLES", "coffee", "TEA", "RICE", "Pasta",
+            "CHEESE", "BUTTER", "Yogurt", "ORANGE", "JUICE", "Tomato", "SOAP", "BATTERIES"};
+
+    private SyntheticReceipts() {
+    }
+
+    static String generate(int itemLines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(itemLines * 32 + 256);
+        text.append("SUNRISE MARKET\nStore #").append(random.nextInt(1000)).append(" 12 High St\n");
+        text.append("0").append(1 + random.nextInt(9)).append("/1").append(random.nextInt(10)).append("/2024 12:0")
+                .append(random.nextInt(10)).append("\n\n");
+        long cents = 0;
+        for (int i = 0; i < itemLines; i++) {
+            switch (random.nextInt(10)) {
+                case 0 -> text.append("Member savings applied\n");
+                case 1 -> text.append("Qty ").append(1 + random.nextInt(5)).append(' ');
+                case 2 -> text.append("~ ");
+                default -> {
+                }
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ')
+                    .append(WORDS[random.nextInt(WORDS.length)]).append(' ').append(random.nextInt(100)).append("OZ");
+            int price = 49 + random.nextInt(5000);
+            cents += price;
+            text.append("      $").append(price / 100).append('.').append(String.format("%02d", price % 100)).append('\n');
+        }
+        text.append("\nSubtotal:   $").append(cents / 100).append('.').append(String.format("%02d", cents % 100));
+        text.append("\nTax:        $0.00\nTotal :     $").append(cents / 100).append('.')
+                .append(String.format("%02d", cents % 100)).append("\n\nTHANK YOU\n");
+        return text.toString();
+    }
+}
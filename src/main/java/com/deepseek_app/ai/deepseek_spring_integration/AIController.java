@@ -1,32 +1,128 @@
 package com.deepseek_app.ai.deepseek_spring_integration;
 
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 @RestController
 @RequestMapping("/api/ai")
 public class AIController {
 
     private final DeepSeekService deepSeekService;
+    private final DeepSeekStreamRelay streamRelay;
+    private final BatchGenerationService batchGenerationService;
+    private final long generateTimeoutMs;
 
-    public AIController(DeepSeekService deepSeekService) {
+    public AIController(DeepSeekService deepSeekService, DeepSeekStreamRelay streamRelay,
+                        BatchGenerationService batchGenerationService,
+                        @Value("${deepseek.async.timeout-ms:120000}") long generateTimeoutMs) {
         this.deepSeekService = deepSeekService;
+        this.streamRelay = streamRelay;
+        this.batchGenerationService = batchGenerationService;
+        this.generateTimeoutMs = generateTimeoutMs;
     }
 
+    /**
+     * Returns the servlet thread to the pool at once; the response is written when DeepSeek
+     * answers, so in-flight generations are not limited by the servlet thread count.
+     */
     @PostMapping("/generate")
-    public org.springframework.http.ResponseEntity<String> generateContent(@RequestBody String prompt) {
-        try {
-            String response = deepSeekService.generateText(prompt);
-            return ResponseEntity.ok(response);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+    public DeferredResult<ResponseEntity<String>> generateContent(@RequestBody String prompt) {
+        // A little longer than the upstream deadline, so the deadline's 504 wins the race
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>(generateTimeoutMs + 1000,
+                () -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("DeepSeek did not answer in time"));
+        deepSeekService.generateTextAsync(prompt, Duration.ofMillis(generateTimeoutMs))
+                .whenComplete((response, error) -> result.setResult(error == null
+                        ? ResponseEntity.ok(response)
+                        : errorResponse(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error)));
+        return result;
+    }
+
+    static ResponseEntity<String> errorResponse(Throwable error) {
+        if (error instanceof DeepSeekUnavailableException e) {
+            return withRetryAfter(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE), e.getRetryAfter())
+                    .body("DeepSeek is unavailable: " + e.getMessage());
+        }
+        if (error instanceof DeepSeekApiException e) {
+            // Our quota is exhausted too, pass that on; other upstream errors are a bad gateway
+            HttpStatus status = e.isRateLimited() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.BAD_GATEWAY;
+            return withRetryAfter(ResponseEntity.status(status), e.getRetryAfter())
                     .body("Error processing request: " + e.getMessage());
         }
+        if (error instanceof SocketTimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body("Error processing request: " + error.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error processing request: " + error.getMessage());
+    }
+
+    @PostMapping(path = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamContent(@RequestBody String prompt) {
+        return streamRelay.stream(prompt);
+    }
+
+    @PostMapping(path = "/generate/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> generateBatch(@RequestBody BatchGenerationRequest request) {
+        try {
+            return batchGenerationService.run(request, result -> { })
+                    .thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+    }
+
+    @PostMapping(path = "/generate/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamBatch(@RequestBody BatchGenerationRequest request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(-1L);
+        try {
+            batchGenerationService.run(request, result -> {
+                // One JSON object per line, written as soon as the item finishes. Workers finish at
+                // the same time, and each send() on its own would let their objects and newlines interleave
+                synchronized (emitter) {
+                    try {
+                        emitter.send(result, MediaType.APPLICATION_JSON);
+                        emitter.send("\n", MediaType.TEXT_PLAIN);
+                    } catch (IOException e) {
+                        // Client went away, the remaining items still finish but nobody reads them
+                    }
+                }
+            }).whenComplete((results, error) -> {
+                if (error != null) {
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private static ResponseEntity.BodyBuilder withRetryAfter(ResponseEntity.BodyBuilder response, Duration retryAfter) {
+        if (retryAfter != null) {
+            // Whole seconds, rounded up so clients never come back too early
+            long seconds = (retryAfter.toMillis() + 999) / 1000;
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        }
+        return response;
     }
-}
\ No newline at end of file
+}
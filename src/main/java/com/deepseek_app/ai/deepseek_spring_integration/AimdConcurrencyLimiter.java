@@ -0,0 +1,161 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive cap on calls in flight. Every fast success while the cap is actually in use adds
+ * {@code 1/limit}, so the cap grows by about one per round trip. A 429 or a call slower than
+ * the latency threshold multiplies it by {@code backoffRatio}, at most once per round trip so
+ * a burst of rejections from one overload counts once. Blocking and async callers wait in one
+ * line and are served in arrival order.
+ */
+public class AimdConcurrencyLimiter {
+
+    public enum Outcome {
+        /** Fast success, the limit may grow. */
+        SUCCESS,
+        /** Rate limited or too slow, the limit shrinks. */
+        OVERLOAD,
+        /** Says nothing about capacity, e.g. a client error or a call that never got an answer. */
+        IGNORE
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private long lastLatencyNanos;
+
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                  long latencyThresholdMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Completes once a slot is free, without holding a thread while waiting. The caller must
+     * release the slot; completing the future exceptionally (e.g. on a timeout) gives up the
+     * place in line.
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Waits up to {@code timeoutNanos} for a slot; returns false if none became free. */
+    public boolean acquire(long timeoutNanos) throws InterruptedException {
+        // Takes a place in the same line as async callers, so neither kind can jump the other
+        CompletableFuture<Void> waiter = acquireAsync();
+        try {
+            waiter.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // The slot may have been handed over just now, then it is ours after all
+            return !waiter.cancel(false);
+        } catch (InterruptedException e) {
+            if (!waiter.cancel(false)) {
+                release(Outcome.IGNORE, 0);
+            }
+            throw e;
+        } catch (ExecutionException | CancellationException e) {
+            // Only this method completes the waiter exceptionally
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+            if (outcome == Outcome.SUCCESS && latencyNanos > latencyThresholdNanos) {
+                outcome = Outcome.OVERLOAD;
+            }
+            if (outcome == Outcome.SUCCESS) {
+                lastLatencyNanos = latencyNanos;
+                if (saturated) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            } else if (outcome == Outcome.OVERLOAD) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseNanos >= lastLatencyNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        handOff();
+    }
+
+    private void handOff() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Void> waiter = waiters.poll();
+                if (!waiter.isDone()) {
+                    inFlight++;
+                    granted.add(waiter);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Completed outside the lock: an async waiter's continuation starts the call right here
+        for (CompletableFuture<Void> waiter : granted) {
+            if (!waiter.complete(null)) {
+                // Timed out in the meantime, the slot goes to the next in line
+                release(Outcome.IGNORE, 0);
+            }
+        }
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
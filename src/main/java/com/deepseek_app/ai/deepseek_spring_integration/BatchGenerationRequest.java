@@ -0,0 +1,9 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /api/ai/generate/batch}. {@code concurrency} and {@code itemTimeoutMs} are
+ * optional and fall back to the configured defaults.
+ */
+public record BatchGenerationRequest(List<String> prompts, Integer concurrency, Long itemTimeoutMs) {}
@@ -0,0 +1,120 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a list of prompts against DeepSeek with bounded parallelism. Each batch starts at most
+ * {@code concurrency} workers that pull the next prompt as soon as they finish one, so a batch
+ * never has more upstream calls in flight than it asked for.
+ */
+@Service
+@Slf4j
+public class BatchGenerationService {
+
+    private final DeepSeekService deepSeekService;
+    private final ExecutorService executor;
+    private final int defaultConcurrency;
+    private final int maxConcurrency;
+    private final long defaultItemTimeoutMs;
+    private final int maxPrompts;
+
+    public BatchGenerationService(DeepSeekService deepSeekService,
+                                  @Value("${deepseek.batch.threads:64}") int threads,
+                                  @Value("${deepseek.batch.default-concurrency:8}") int defaultConcurrency,
+                                  @Value("${deepseek.batch.max-concurrency:32}") int maxConcurrency,
+                                  @Value("${deepseek.batch.item-timeout-ms:60000}") long defaultItemTimeoutMs,
+                                  @Value("${deepseek.batch.max-prompts:10000}") int maxPrompts) {
+        this.deepSeekService = deepSeekService;
+        this.defaultConcurrency = defaultConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.defaultItemTimeoutMs = defaultItemTimeoutMs;
+        this.maxPrompts = maxPrompts;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Workers of concurrent batches share these threads and queue up when all are busy
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "deepseek-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Starts the batch and calls {@code onResult} from the worker threads as each item finishes.
+     * The returned future completes with all results in input order.
+     *
+     * @throws IllegalArgumentException if the request is empty or larger than allowed
+     */
+    public CompletableFuture<List<BatchItemResult>> run(BatchGenerationRequest request,
+                                                        Consumer<BatchItemResult> onResult) {
+        List<String> prompts = request.prompts();
+        if (prompts == null || prompts.isEmpty()) {
+            throw new IllegalArgumentException("prompts must not be empty");
+        }
+        if (prompts.size() > maxPrompts) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxPrompts + " prompts");
+        }
+        int concurrency = Math.min(prompts.size(), clamp(request.concurrency()));
+        Duration itemTimeout = Duration.ofMillis(request.itemTimeoutMs() != null && request.itemTimeoutMs() > 0
+                ? request.itemTimeoutMs()
+                : defaultItemTimeoutMs);
+
+        BatchItemResult[] results = new BatchItemResult[prompts.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[concurrency];
+        for (int w = 0; w < concurrency; w++) {
+            workers[w] = CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < prompts.size()) {
+                    BatchItemResult result = runItem(index, prompts.get(index), itemTimeout);
+                    results[index] = result;
+                    onResult.accept(result);
+                }
+            }, executor);
+        }
+        log.debug("Started batch of {} prompts with concurrency {}", prompts.size(), concurrency);
+        return CompletableFuture.allOf(workers).thenApply(done -> Arrays.asList(results));
+    }
+
+    private BatchItemResult runItem(int index, String prompt, Duration itemTimeout) {
+        long start = System.nanoTime();
+        try {
+            String response = deepSeekService.generateText(prompt, itemTimeout);
+            return BatchItemResult.success(index, response, elapsedMs(start));
+        } catch (IOException | RuntimeException e) {
+            return BatchItemResult.failure(index, e.getMessage(), elapsedMs(start));
+        }
+    }
+
+    private int clamp(Integer requested) {
+        int concurrency = requested != null && requested > 0 ? requested : defaultConcurrency;
+        return Math.min(concurrency, maxConcurrency);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
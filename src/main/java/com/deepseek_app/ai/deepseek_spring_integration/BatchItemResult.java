@@ -0,0 +1,16 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Outcome of one prompt of a batch; exactly one of {@code response} and {@code error} is set. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(int index, String response, String error, long latencyMs) {
+
+    public static BatchItemResult success(int index, String response, long latencyMs) {
+        return new BatchItemResult(index, response, null, latencyMs);
+    }
+
+    public static BatchItemResult failure(int index, String error, long latencyMs) {
+        return new BatchItemResult(index, null, error, latencyMs);
+    }
+}
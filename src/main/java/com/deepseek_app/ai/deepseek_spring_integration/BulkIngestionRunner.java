@@ -0,0 +1,209 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless ingestion of a directory of receipts, started with the {@code bulk} profile. Every
+ * file goes through the same {@link OcrJobService} as an upload, so OCR runs on all Tesseract
+ * engines at once and hits the OCR cache. Submissions block while the job queue is full, which
+ * keeps memory flat however many files there are.
+ */
+@Component
+@Profile("bulk")
+@Slf4j
+public class BulkIngestionRunner implements CommandLineRunner, ExitCodeGenerator {
+
+    private final OcrJobService ocrJobService;
+    private final Path inputDirectory;
+    private final Path output;
+    private final boolean resume;
+    private final Set<String> extensions;
+    private final long progressIntervalNanos;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public BulkIngestionRunner(OcrJobService ocrJobService,
+                               @Value("${bulk.input-dir}") String inputDirectory,
+                               @Value("${bulk.output:receipts.jsonl}") String output,
+                               @Value("${bulk.resume:true}") boolean resume,
+                               @Value("${bulk.extensions:jpg,jpeg,png,bmp,gif,tif,tiff,pdf}") List<String> extensions,
+                               @Value("${bulk.progress-interval-ms:10000}") long progressIntervalMs) {
+        this.ocrJobService = ocrJobService;
+        this.inputDirectory = Paths.get(inputDirectory);
+        this.output = Paths.get(output);
+        this.resume = resume;
+        this.extensions = extensions.stream()
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(progressIntervalMs);
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        List<Path> files = scan();
+        try (BulkResultWriter results = BulkResultWriter.open(output, resume)) {
+            List<Path> pending = files.stream()
+                    .filter(file -> !results.getCompleted().contains(relativeName(file)))
+                    .toList();
+            log.info("Bulk run over {}: {} receipts, {} done in an earlier run, {} to process",
+                    inputDirectory, files.size(), files.size() - pending.size(), pending.size());
+
+            Progress progress = new Progress(pending.size());
+            AtomicReference<IOException> writeFailure = new AtomicReference<>();
+            // One party per receipt in flight plus this thread; finished receipts deregister
+            Phaser inFlight = new Phaser(1);
+            for (Path file : pending) {
+                if (writeFailure.get() != null) {
+                    break;
+                }
+                inFlight.register();
+                submit(file, result -> {
+                    try {
+                        results.write(result);
+                    } catch (IOException e) {
+                        writeFailure.compareAndSet(null, e);
+                    } finally {
+                        progress.record(result.error() == null);
+                        inFlight.arriveAndDeregister();
+                    }
+                });
+            }
+            inFlight.arriveAndAwaitAdvance();
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
+            progress.report();
+        }
+    }
+
+    /** 1 when any receipt failed, so schedulers can tell a clean run apart. */
+    @Override
+    public int getExitCode() {
+        return failed.get() > 0 ? 1 : 0;
+    }
+
+    private void submit(Path file, Consumer<BulkReceiptResult> onResult) {
+        String name = relativeName(file);
+        long start = System.nanoTime();
+        SpooledUpload upload;
+        String sha256 = null;
+        try {
+            // Hashing here overlaps with OCR on the workers and costs a fraction of it
+            sha256 = ContentHash.sha256Hex(file);
+            upload = SpooledUpload.ofExistingFile(file, sha256);
+        } catch (IOException e) {
+            onResult.accept(BulkReceiptResult.failure(name, sha256, "Could not read file: " + e.getMessage(), 0));
+            return;
+        }
+        String hash = sha256;
+        try {
+            ocrJobService.submit(upload, new OcrJobListener() {
+                @Override
+                public void onCompleted(OcrJob job, String ocrText, MainView.Receipt receipt) {
+                    onResult.accept(BulkReceiptResult.success(name, hash, receipt, elapsedMs(start)));
+                }
+
+                @Override
+                public void onFailed(OcrJob job, Exception error) {
+                    onResult.accept(BulkReceiptResult.failure(name, hash, error.getMessage(), elapsedMs(start)));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            onResult.accept(BulkReceiptResult.failure(name, hash, "OCR queue rejected the file: " + e.getMessage(),
+                    elapsedMs(start)));
+        } finally {
+            upload.release();
+        }
+    }
+
+    private List<Path> scan() throws IOException {
+        if (!Files.isDirectory(inputDirectory)) {
+            throw new IllegalArgumentException("bulk.input-dir is not a directory: " + inputDirectory);
+        }
+        try (Stream<Path> paths = Files.walk(inputDirectory)) {
+            // Sorted, so a resumed run works through the files in the same order
+            return paths.filter(Files::isRegularFile)
+                    .filter(this::hasReceiptExtension)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private boolean hasReceiptExtension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private String relativeName(Path file) {
+        return inputDirectory.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private final class Progress {
+
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicLong lastLogNanos = new AtomicLong(startNanos);
+
+        Progress(int total) {
+            this.total = total;
+        }
+
+        void record(boolean success) {
+            if (success) {
+                succeeded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            long now = System.nanoTime();
+            long last = lastLogNanos.get();
+            if (now - last >= progressIntervalNanos && lastLogNanos.compareAndSet(last, now)) {
+                int done = succeeded.get() + failed.get();
+                double perSecond = perSecond(done, now);
+                log.info("Bulk progress: {}/{} receipts, {} receipts/s, about {} s left", done, total,
+                        String.format(Locale.ROOT, "%.1f", perSecond),
+                        perSecond > 0 ? Math.round((total - done) / perSecond) : "?");
+            }
+        }
+
+        void report() {
+            long now = System.nanoTime();
+            int done = succeeded.get() + failed.get();
+            log.info("Bulk run finished: {} receipts in {} s ({} receipts/s), {} succeeded, {} failed, results in {}",
+                    done, TimeUnit.NANOSECONDS.toSeconds(now - startNanos),
+                    String.format(Locale.ROOT, "%.1f", perSecond(done, now)),
+                    succeeded.get(), failed.get(), output.toAbsolutePath());
+        }
+
+        private double perSecond(int done, long now) {
+            long elapsed = now - startNanos;
+            return elapsed > 0 ? done * 1e9 / elapsed : 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of a bulk run's output. {@code file} is relative to the input directory; exactly one
+ * of {@code receipt} and {@code error} is set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkReceiptResult(String file, String sha256, MainView.Receipt receipt, String error,
+                                long latencyMs) {
+
+    public static BulkReceiptResult success(String file, String sha256, MainView.Receipt receipt, long latencyMs) {
+        return new BulkReceiptResult(file, sha256, receipt, null, latencyMs);
+    }
+
+    public static BulkReceiptResult failure(String file, String sha256, String error, long latencyMs) {
+        return new BulkReceiptResult(file, sha256, null, error, latencyMs);
+    }
+}
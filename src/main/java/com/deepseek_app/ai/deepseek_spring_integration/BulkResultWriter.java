@@ -0,0 +1,127 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JSONL output of a bulk run that doubles as its checkpoint. Every result is flushed as one line
+ * as soon as it is written, so after a kill the file lists exactly the receipts that finished;
+ * reopening it skips those that succeeded and drops a last line that was cut short. Failed
+ * receipts are tried again, a later line for the same file supersedes the earlier one.
+ */
+@Slf4j
+public final class BulkResultWriter implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Set<String> completed;
+    private final Writer writer;
+
+    private BulkResultWriter(Set<String> completed, Writer writer) {
+        this.completed = completed;
+        this.writer = writer;
+    }
+
+    /** Opens {@code output} for appending when {@code resume} is set, otherwise starts it over. */
+    public static BulkResultWriter open(Path output, boolean resume) throws IOException {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Set<String> completed = new HashSet<>();
+        if (resume && Files.exists(output)) {
+            dropTornLine(output);
+            readCompleted(output, completed);
+        }
+        Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        return new BulkResultWriter(Collections.unmodifiableSet(completed), writer);
+    }
+
+    /** Files the output already holds a successful result for. */
+    public Set<String> getCompleted() {
+        return completed;
+    }
+
+    public synchronized void write(BulkReceiptResult result) throws IOException {
+        writer.write(MAPPER.writeValueAsString(result));
+        writer.write('\n');
+        // The page cache is enough to survive a killed JVM, no fsync per line
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static void readCompleted(Path output, Set<String> completed) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode result = MAPPER.readTree(line);
+                    JsonNode file = result.get("file");
+                    JsonNode error = result.get("error");
+                    // A failure, e.g. during a DeepSeek outage, is worth another attempt
+                    if (file != null && (error == null || error.isNull())) {
+                        completed.add(file.asText());
+                    }
+                } catch (JsonProcessingException e) {
+                    log.warn("Ignoring unreadable line in {}: {}", output, e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    private static void dropTornLine(Path output) throws IOException {
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(8192);
+            long end = channel.size();
+            while (end > 0) {
+                long start = Math.max(0, end - chunk.capacity());
+                chunk.clear().limit((int) (end - start));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, start + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        truncate(channel, output, start + i + 1);
+                        return;
+                    }
+                }
+                end = start;
+            }
+            truncate(channel, output, 0);
+        }
+    }
+
+    private static void truncate(FileChannel channel, Path output, long size) throws IOException {
+        if (channel.size() > size) {
+            log.info("Dropping {} bytes of an unfinished line at the end of {}", channel.size() - size, output);
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Reads and writes the chat completion wire format with Jackson's streaming API. Requests for
+ * the blocking client are generated straight into the connection's output stream, those for the
+ * async client into one buffer it sends from. Responses are scanned token by token for the few
+ * fields we need, without a tree or an intermediate string.
+ */
+public final class ChatCompletionCodec {
+
+    // Keeps an ObjectCodec on the factory so option values of any type can be written. The
+    // output stream belongs to the HTTP client, which finishes and closes it itself.
+    private static final JsonFactory JSON = new ObjectMapper().getFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private ChatCompletionCodec() {
+    }
+
+    /** A repeatable entity that serializes the request whenever the client writes it. */
+    public static HttpEntity toEntity(ChatCompletionRequest request, boolean stream) {
+        return new RequestEntity(request, stream);
+    }
+
+    /**
+     * The request for the async client, serialized once. The I/O reactor cannot write into an
+     * output stream, it takes the bytes from this entity's buffer as the socket accepts them.
+     */
+    public static HttpEntity toAsyncEntity(ChatCompletionRequest request, boolean stream) throws IOException {
+        Buffer bytes = new Buffer();
+        writeRequest(request, stream, bytes);
+        return new NByteArrayEntity(bytes.array(), 0, bytes.size(), ContentType.APPLICATION_JSON);
+    }
+
+    public static void writeRequest(ChatCompletionRequest request, boolean stream, OutputStream out)
+            throws IOException {
+        try (JsonGenerator generator = JSON.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", request.model());
+            generator.writeArrayFieldStart("messages");
+            for (ChatMessage message : request.messages()) {
+                generator.writeStartObject();
+                generator.writeStringField("role", message.role());
+                generator.writeStringField("content", message.content());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            for (Map.Entry<String, ?> option : request.options().entrySet()) {
+                generator.writeObjectField(option.getKey(), option.getValue());
+            }
+            generator.writeBooleanField("stream", stream);
+            generator.writeEndObject();
+        }
+    }
+
+    /** Extracts {@code choices[0].message.content} and {@code usage} from a completion response. */
+    public static ChatCompletionResult readResult(InputStream in) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            return readCompletion(parser, "message");
+        }
+    }
+
+    /** Extracts {@code choices[0].delta.content} from one streamed chunk, or "" if it has none. */
+    public static String readDelta(String chunk) throws IOException {
+        try (JsonParser parser = JSON.createParser(chunk)) {
+            String content = readCompletion(parser, "delta").content();
+            return content == null ? "" : content;
+        }
+    }
+
+    private static ChatCompletionResult readCompletion(JsonParser parser, String choiceField) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object but got " + parser.currentToken());
+        }
+        String content = null;
+        ChatCompletionResult.Usage usage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("choices".equals(field)) {
+                content = readFirstChoiceContent(parser, choiceField);
+            } else if ("usage".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                usage = readUsage(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ChatCompletionResult(content, usage);
+    }
+
+    private static String readFirstChoiceContent(JsonParser parser, String choiceField) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String content = null;
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (choiceField.equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                        content = readContentField(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+        return content;
+    }
+
+    private static String readContentField(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("content".equals(field) && value == JsonToken.VALUE_STRING) {
+                content = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private static ChatCompletionResult.Usage readUsage(JsonParser parser) throws IOException {
+        long promptTokens = 0;
+        long completionTokens = 0;
+        long totalTokens = 0;
+        long cachedTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("prompt_tokens_details".equals(field) && value == JsonToken.START_OBJECT) {
+                // OpenAI-compatible upstreams report the prefix cache here
+                cachedTokens = Math.max(cachedTokens, readLongField(parser, "cached_tokens"));
+                continue;
+            }
+            if (value != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "prompt_tokens" -> promptTokens = parser.getLongValue();
+                case "completion_tokens" -> completionTokens = parser.getLongValue();
+                case "total_tokens" -> totalTokens = parser.getLongValue();
+                // DeepSeek's own name for the prompt tokens served from its prefix cache
+                case "prompt_cache_hit_tokens" -> cachedTokens = Math.max(cachedTokens, parser.getLongValue());
+                default -> {
+                }
+            }
+        }
+        return new ChatCompletionResult.Usage(promptTokens, completionTokens, totalTokens, cachedTokens);
+    }
+
+    private static long readLongField(JsonParser parser, String name) throws IOException {
+        long result = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                result = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    private static final class RequestEntity extends AbstractHttpEntity {
+
+        private final ChatCompletionRequest request;
+        private final boolean stream;
+
+        RequestEntity(ChatCompletionRequest request, boolean stream) {
+            this.request = request;
+            this.stream = stream;
+            setContentType(ContentType.APPLICATION_JSON.toString());
+            // Length is unknown until written, so the body goes out chunked
+            setChunked(true);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            // The blocking client writes with writeTo; this is for callers that want the bytes
+            Buffer bytes = new Buffer();
+            writeTo(bytes);
+            return new ByteArrayInputStream(bytes.array(), 0, bytes.size());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writeRequest(request, stream, out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /** Hands its buffer over as it is, without the copy {@code toByteArray()} makes. */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
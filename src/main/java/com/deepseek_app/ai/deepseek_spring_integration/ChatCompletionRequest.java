@@ -0,0 +1,20 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chat completion call. {@code options} are written as top-level request fields next to
+ * {@code model} and {@code messages}, e.g. {@code temperature} or {@code max_tokens}.
+ */
+public record ChatCompletionRequest(String model, List<ChatMessage> messages, Map<String, ?> options) {
+
+    public ChatCompletionRequest {
+        messages = List.copyOf(messages);
+        options = options == null ? Map.of() : Map.copyOf(options);
+    }
+
+    public static ChatCompletionRequest ofPrompt(String model, String prompt) {
+        return new ChatCompletionRequest(model, List.of(ChatMessage.user(prompt)), Map.of());
+    }
+}
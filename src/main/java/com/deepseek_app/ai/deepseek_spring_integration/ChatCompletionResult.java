@@ -0,0 +1,16 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+/**
+ * The parts of a chat completion response the application uses. {@code usage} is null when the
+ * upstream did not report it.
+ */
+public record ChatCompletionResult(String content, Usage usage) {
+
+    /** {@code cachedPromptTokens} is the part of the prompt DeepSeek served from its prefix cache. */
+    public record Usage(long promptTokens, long completionTokens, long totalTokens, long cachedPromptTokens) {
+
+        public Usage(long promptTokens, long completionTokens, long totalTokens) {
+            this(promptTokens, completionTokens, totalTokens, 0);
+        }
+    }
+}
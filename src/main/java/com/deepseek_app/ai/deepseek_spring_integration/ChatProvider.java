@@ -0,0 +1,143 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * One OpenAI-compatible chat completion backend and what the router knows about it: the
+ * latencies of its recent answers, its recent error rate and a circuit breaker that takes it
+ * out of rotation while it keeps failing.
+ */
+public final class ChatProvider {
+
+    private final String name;
+    private final DeepSeekRequestFactory requestFactory;
+    private final String model;
+    private final CircuitBreaker circuitBreaker;
+    private final int minSamples;
+
+    private final long[] latencies;
+    private int latencyCount;
+    private int nextLatency;
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int nextOutcome;
+    private int failures;
+
+    /**
+     * @param model       the model name this provider knows {@code deepseek-chat} by, or
+     *                    null to send the request's model unchanged
+     * @param window      how many recent calls the latency and error statistics cover
+     * @param minSamples  answers needed before the latency percentiles are trusted
+     */
+    public ChatProvider(String name, DeepSeekRequestFactory requestFactory, String model, int window,
+                        int minSamples, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.requestFactory = requestFactory;
+        this.model = model == null || model.isBlank() ? null : model;
+        this.latencies = new long[Math.max(1, window)];
+        this.outcomes = new boolean[Math.max(1, window)];
+        this.minSamples = Math.max(1, Math.min(minSamples, latencies.length));
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DeepSeekRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /** The request as this provider expects it; OpenRouter, for one, namespaces model names. */
+    public ChatCompletionRequest prepare(ChatCompletionRequest completion) {
+        if (model == null || !DeepSeekService.MODEL.equals(completion.model())) {
+            return completion;
+        }
+        return new ChatCompletionRequest(model, completion.messages(), completion.options());
+    }
+
+    /** Same contract as {@link CircuitBreaker#tryAcquire()}. */
+    Duration tryAcquire() {
+        return circuitBreaker.tryAcquire();
+    }
+
+    /** @param latencyNanos how long the answer took, or -1 for a stream, whose length depends on the answer */
+    synchronized void onSuccess(long latencyNanos) {
+        if (latencyNanos >= 0) {
+            recordLatency(latencyNanos);
+        }
+        recordOutcome(false);
+        circuitBreaker.onSuccess();
+    }
+
+    synchronized void onFailure() {
+        recordOutcome(true);
+        circuitBreaker.onFailure();
+    }
+
+    /**
+     * The call was abandoned because another provider answered first. It would have taken at
+     * least {@code elapsedNanos}. That is kept as a latency sample when it is no faster than the
+     * median, so a provider that keeps losing hedges looks as slow as it is; a hedge cancelled
+     * early says nothing about how fast it would have been and is dropped.
+     */
+    synchronized void onCancelled(long elapsedNanos) {
+        long median = getLatencyNanos(0.5);
+        if (median >= 0 && elapsedNanos >= median) {
+            recordLatency(elapsedNanos);
+        }
+        circuitBreaker.onIgnored();
+    }
+
+    /** The call failed for a reason that says nothing about the provider, e.g. a bad request. */
+    void onIgnored() {
+        circuitBreaker.onIgnored();
+    }
+
+    /** The latency below which {@code quantile} of recent answers arrived, or -1 until there are enough. */
+    public synchronized long getLatencyNanos(double quantile) {
+        if (latencyCount < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        // Nearest rank
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    public synchronized double getErrorRate() {
+        return outcomeCount == 0 ? 0 : (double) failures / outcomeCount;
+    }
+
+    public boolean isEjected() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    private void recordLatency(long nanos) {
+        latencies[nextLatency] = nanos;
+        nextLatency = (nextLatency + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+    }
+
+    private void recordOutcome(boolean failure) {
+        if (outcomeCount == outcomes.length) {
+            if (outcomes[nextOutcome]) {
+                failures--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[nextOutcome] = failure;
+        if (failure) {
+            failures++;
+        }
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,129 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails fast while DeepSeek is unhealthy. Opens when at least {@code failureRate} of the last
+ * {@code windowSize} calls failed (5xx or no answer), stays open for {@code openDuration}, then
+ * lets {@code halfOpenProbes} trial calls through: all of them succeeding closes it again, any
+ * failure reopens it. Rate limiting is not a failure; the concurrency limiter handles that.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] window;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int halfOpenProbes;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long opened;
+
+    public CircuitBreaker(int windowSize, int minCalls, double failureRate, Duration openDuration, int halfOpenProbes) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, window.length));
+        this.failureRate = failureRate;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    }
+
+    /**
+     * Returns {@code null} if the call may proceed, otherwise how long until the breaker lets
+     * calls through again. A permitted call must end with exactly one {@code on...} call.
+     */
+    public synchronized Duration tryAcquire() {
+        if (state == State.OPEN) {
+            long remaining = openedAtNanos + openNanos - System.nanoTime();
+            if (remaining > 0) {
+                return Duration.ofNanos(remaining);
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                return Duration.ofMillis(Math.max(1, TimeUnit.NANOSECONDS.toMillis(openNanos) / 10));
+            }
+            probesStarted++;
+        }
+        return null;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.OPEN) {
+            // Started before the breaker opened
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenProbes) {
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                failures = 0;
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.OPEN) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minCalls && failures >= failureRate * recorded) {
+            open();
+        }
+    }
+
+    /** The call ended without saying anything about upstream health. */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** How many times the breaker has opened. */
+    public synchronized long getOpenedCount() {
+        return opened;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        opened++;
+    }
+}
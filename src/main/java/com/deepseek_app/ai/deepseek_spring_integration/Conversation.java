@@ -0,0 +1,134 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One server-side chat. The prompt is always built in the same order: system prompt, summary
+ * of trimmed turns, then the turns oldest first, so consecutive requests share a long prefix
+ * that DeepSeek can serve from its context cache. Only one turn runs at a time.
+ */
+public final class Conversation {
+
+    private record Turn(ChatMessage message, int tokens) {
+    }
+
+    private final String id;
+    private final ChatMessage systemPrompt;
+    private final int systemTokens;
+    private final Instant createdAt = Instant.now();
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final List<Turn> turns = new ArrayList<>();
+    private ChatMessage summary;
+    private int summaryTokens;
+    // Reported prompt tokens over estimated, so the budget follows the real tokenizer
+    private double scale = 1.0;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    Conversation(String id, String systemPrompt) {
+        this.id = id;
+        this.systemPrompt = ChatMessage.system(systemPrompt);
+        this.systemTokens = TokenEstimator.estimate(this.systemPrompt);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    boolean tryAcquire() {
+        return busy.compareAndSet(false, true);
+    }
+
+    void release() {
+        touch();
+        busy.set(false);
+    }
+
+    boolean isBusy() {
+        return busy.get();
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+    }
+
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    /** The prompt for the next turn, with {@code next} as the last message. */
+    synchronized List<ChatMessage> prompt(ChatMessage next) {
+        List<ChatMessage> messages = getMessages();
+        messages.add(next);
+        return messages;
+    }
+
+    /** Estimated prompt tokens with {@code extraTokens} more, scaled by the last reported usage. */
+    synchronized int promptTokens(int extraTokens) {
+        return (int) Math.ceil(estimatedTokens(extraTokens) * scale);
+    }
+
+    /**
+     * Removes the oldest exchanges until the prompt plus {@code extraTokens} fits in
+     * {@code targetTokens}, and returns them. A question is never kept without its answer.
+     */
+    synchronized List<ChatMessage> trimTo(int targetTokens, int extraTokens) {
+        List<ChatMessage> dropped = new ArrayList<>();
+        while (turns.size() >= 2 && promptTokens(extraTokens) > targetTokens) {
+            dropped.add(turns.remove(0).message());
+            dropped.add(turns.remove(0).message());
+        }
+        return dropped;
+    }
+
+    synchronized String getSummary() {
+        return summary != null ? summary.content() : null;
+    }
+
+    synchronized void setSummary(String text, int tokens) {
+        summary = ChatMessage.system("Summary of the earlier conversation:\n" + text);
+        summaryTokens = tokens + TokenEstimator.MESSAGE_OVERHEAD;
+    }
+
+    /**
+     * Appends a finished exchange. {@code promptTokens} is the prompt size DeepSeek reported for
+     * it and {@code answerTokens} the answer's, both 0 when the response had no usage.
+     */
+    synchronized void append(ChatMessage question, ChatMessage answer, long promptTokens, long answerTokens) {
+        int questionTokens = TokenEstimator.estimate(question);
+        if (promptTokens > 0) {
+            double estimated = estimatedTokens(questionTokens);
+            scale = Math.max(0.5, Math.min(3.0, promptTokens / estimated));
+        }
+        turns.add(new Turn(question, questionTokens));
+        turns.add(new Turn(answer, answerTokens > 0
+                ? (int) Math.ceil(answerTokens / scale) + TokenEstimator.MESSAGE_OVERHEAD
+                : TokenEstimator.estimate(answer)));
+    }
+
+    synchronized List<ChatMessage> getMessages() {
+        List<ChatMessage> messages = new ArrayList<>(turns.size() + 3);
+        messages.add(systemPrompt);
+        if (summary != null) {
+            messages.add(summary);
+        }
+        for (Turn turn : turns) {
+            messages.add(turn.message());
+        }
+        return messages;
+    }
+
+    private int estimatedTokens(int extraTokens) {
+        int tokens = systemTokens + summaryTokens + extraTokens;
+        for (Turn turn : turns) {
+            tokens += turn.tokens();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,78 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+
+@RestController
+@RequestMapping("/api/conversations")
+public class ConversationController {
+
+    private final ConversationService conversationService;
+    private final long timeoutMs;
+
+    public ConversationController(ConversationService conversationService,
+                                  @Value("${deepseek.async.timeout-ms:120000}") long timeoutMs) {
+        this.conversationService = conversationService;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /** The body, if any, is the system prompt; it stays the same for the whole conversation. */
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody(required = false) String systemPrompt) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(ConversationView.of(conversationService.create(systemPrompt)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ConversationView> find(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(ConversationView.of(conversationService.find(id)));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        return conversationService.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /** Like {@code /api/ai/generate}, the servlet thread is released until DeepSeek answers. */
+    @PostMapping("/{id}/messages")
+    public DeferredResult<ResponseEntity<?>> send(@PathVariable String id, @RequestBody String message) {
+        // Room for a summary call before the answer, so the upstream deadlines' 504 wins the race
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(2 * timeoutMs + 1000,
+                () -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("DeepSeek did not answer in time"));
+        try {
+            conversationService.send(id, message)
+                    .whenComplete((reply, error) -> result.setResult(error == null
+                            ? ResponseEntity.ok(reply)
+                            : AIController.errorResponse(error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause()
+                                    : error)));
+        } catch (NoSuchElementException e) {
+            result.setResult(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage()));
+        }
+        return result;
+    }
+}
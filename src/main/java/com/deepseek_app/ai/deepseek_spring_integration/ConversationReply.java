@@ -0,0 +1,10 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+/**
+ * The answer to one turn. Token counts are those DeepSeek reported, 0 when it did not;
+ * {@code cachedPromptTokens} of the prompt were served from its prefix cache.
+ * {@code contextTokens} is the estimated prompt size of the next turn before its question.
+ */
+public record ConversationReply(String conversationId, String content, long promptTokens, long cachedPromptTokens,
+                                long completionTokens, int contextTokens, boolean trimmed) {
+}
@@ -0,0 +1,241 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Multi-turn chats kept on the server. Each turn sends the whole conversation in a stable order,
+ * so DeepSeek's context cache serves everything but the newest turns. When prompt and answer
+ * would outgrow {@code deepseek.conversation.max-context-tokens}, the oldest turns are cut in one
+ * go down to {@code trim-ratio} of it and replaced by a summary. Cutting well below the limit means the
+ * prefix, and with it the cache, survives many turns instead of changing on every one.
+ * Conversations live in memory, capped by count and expired when idle.
+ */
+@Service
+@Slf4j
+public class ConversationService {
+
+    static final String SUMMARY_PROMPT = """
+            Summarise the conversation below for whoever continues it. Keep names, numbers, decisions \
+            and open questions; leave out pleasantries. If it starts with an earlier summary, merge it in. \
+            Answer with the summary only.""";
+
+    private final DeepSeekService deepSeekService;
+    private final String defaultSystemPrompt;
+    private final int maxContextTokens;
+    private final int trimTargetTokens;
+    private final int maxReplyTokens;
+    private final boolean summarize;
+    private final int summaryMaxTokens;
+    private final int maxConversations;
+    private final long idleTimeoutNanos;
+    private final Duration timeout;
+    // Access order: iteration starts at the conversation used longest ago
+    private final Map<String, Conversation> conversations = new LinkedHashMap<>(64, 0.75f, true);
+    private final Counter trimmedSummarized;
+    private final Counter trimmedDropped;
+    private final Counter evictedIdle;
+    private final Counter evictedCapacity;
+
+    public ConversationService(DeepSeekService deepSeekService,
+                               MeterRegistry meterRegistry,
+                               @Value("${deepseek.conversation.system-prompt:You are a helpful assistant.}") String defaultSystemPrompt,
+                               @Value("${deepseek.conversation.max-context-tokens:16000}") int maxContextTokens,
+                               @Value("${deepseek.conversation.trim-ratio:0.5}") double trimRatio,
+                               @Value("${deepseek.conversation.max-reply-tokens:2000}") int maxReplyTokens,
+                               @Value("${deepseek.conversation.summarize:true}") boolean summarize,
+                               @Value("${deepseek.conversation.summary-max-tokens:500}") int summaryMaxTokens,
+                               @Value("${deepseek.conversation.max-sessions:1000}") int maxConversations,
+                               @Value("${deepseek.conversation.idle-timeout-ms:1800000}") long idleTimeoutMs,
+                               @Value("${deepseek.async.timeout-ms:120000}") long timeoutMs) {
+        this.deepSeekService = deepSeekService;
+        this.defaultSystemPrompt = defaultSystemPrompt;
+        this.maxContextTokens = maxContextTokens;
+        this.trimTargetTokens = (int) (maxContextTokens * Math.max(0.1, Math.min(1.0, trimRatio)));
+        this.maxReplyTokens = maxReplyTokens;
+        this.summarize = summarize;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.maxConversations = Math.max(1, maxConversations);
+        this.idleTimeoutNanos = idleTimeoutMs * 1_000_000L;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.trimmedSummarized = Counter.builder("deepseek.conversations.trimmed")
+                .description("Times old turns were cut from a conversation")
+                .tag("summarized", "true").register(meterRegistry);
+        this.trimmedDropped = Counter.builder("deepseek.conversations.trimmed")
+                .description("Times old turns were cut from a conversation")
+                .tag("summarized", "false").register(meterRegistry);
+        this.evictedIdle = Counter.builder("deepseek.conversations.evicted")
+                .description("Conversations removed from memory before being deleted")
+                .tag("reason", "idle").register(meterRegistry);
+        this.evictedCapacity = Counter.builder("deepseek.conversations.evicted")
+                .description("Conversations removed from memory before being deleted")
+                .tag("reason", "capacity").register(meterRegistry);
+    }
+
+    /** Starts a conversation; a blank {@code systemPrompt} uses the configured one. */
+    public Conversation create(String systemPrompt) {
+        String prompt = systemPrompt == null || systemPrompt.isBlank() ? defaultSystemPrompt : systemPrompt.strip();
+        if (TokenEstimator.estimate(prompt) > trimTargetTokens) {
+            throw new IllegalArgumentException("System prompt does not fit the conversation token budget");
+        }
+        Conversation conversation = new Conversation(UUID.randomUUID().toString(), prompt);
+        synchronized (conversations) {
+            expireIdle();
+            conversations.put(conversation.getId(), conversation);
+            Iterator<Conversation> oldest = conversations.values().iterator();
+            while (conversations.size() > maxConversations && oldest.hasNext()) {
+                if (!oldest.next().isBusy()) {
+                    oldest.remove();
+                    evictedCapacity.increment();
+                }
+            }
+        }
+        return conversation;
+    }
+
+    /** @throws NoSuchElementException if there is no such conversation, or it expired */
+    public Conversation find(String id) {
+        synchronized (conversations) {
+            expireIdle();
+            Conversation conversation = conversations.get(id);
+            if (conversation == null) {
+                throw new NoSuchElementException("No conversation " + id);
+            }
+            conversation.touch();
+            return conversation;
+        }
+    }
+
+    public boolean delete(String id) {
+        synchronized (conversations) {
+            return conversations.remove(id) != null;
+        }
+    }
+
+    public int getActiveCount() {
+        synchronized (conversations) {
+            return conversations.size();
+        }
+    }
+
+    /**
+     * Sends the next question and completes with the answer once DeepSeek replies. The exchange
+     * is only added to the conversation when it succeeded, so a failed turn can be retried.
+     *
+     * @throws NoSuchElementException   if there is no such conversation
+     * @throws IllegalStateException    if a turn of the conversation is still running
+     * @throws IllegalArgumentException if the question alone exceeds the token budget
+     */
+    public CompletableFuture<ConversationReply> send(String id, String question) {
+        Conversation conversation = find(id);
+        ChatMessage message = ChatMessage.user(question);
+        int questionTokens = TokenEstimator.estimate(message);
+        if (questionTokens + maxReplyTokens > trimTargetTokens) {
+            throw new IllegalArgumentException("Message exceeds the conversation token budget");
+        }
+        if (!conversation.tryAcquire()) {
+            throw new IllegalStateException("Conversation " + id + " is still answering the previous message");
+        }
+        CompletableFuture<ConversationReply> reply;
+        try {
+            reply = trimIfNeeded(conversation, questionTokens)
+                    .thenCompose(trimmed -> deepSeekService.completeAsync(request(conversation.prompt(message)), timeout)
+                            .thenApply(result -> {
+                                ChatCompletionResult.Usage usage = result.usage();
+                                String answer = result.content() != null ? result.content() : "";
+                                conversation.append(message, ChatMessage.assistant(answer),
+                                        usage != null ? usage.promptTokens() : 0,
+                                        usage != null ? usage.completionTokens() : 0);
+                                return new ConversationReply(id, answer,
+                                        usage != null ? usage.promptTokens() : 0,
+                                        usage != null ? usage.cachedPromptTokens() : 0,
+                                        usage != null ? usage.completionTokens() : 0,
+                                        conversation.promptTokens(0), trimmed);
+                            }));
+        } catch (RuntimeException e) {
+            conversation.release();
+            throw e;
+        }
+        return reply.whenComplete((result, error) -> conversation.release());
+    }
+
+    /** Completes with whether turns were cut, after the summary, if any, is in place. */
+    private CompletableFuture<Boolean> trimIfNeeded(Conversation conversation, int questionTokens) {
+        // The answer has to fit as well
+        if (conversation.promptTokens(questionTokens + maxReplyTokens) <= maxContextTokens) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String previousSummary = conversation.getSummary();
+        int reserved = questionTokens + maxReplyTokens + (summarize ? summaryMaxTokens : 0);
+        List<ChatMessage> dropped = conversation.trimTo(trimTargetTokens, reserved);
+        log.debug("Conversation {} cut {} messages to stay within {} tokens",
+                conversation.getId(), dropped.size(), maxContextTokens);
+        if (!summarize || dropped.isEmpty()) {
+            trimmedDropped.increment();
+            return CompletableFuture.completedFuture(true);
+        }
+        return deepSeekService.completeAsync(summaryRequest(previousSummary, dropped), timeout)
+                .handle((result, error) -> {
+                    if (error == null && result.content() != null && !result.content().isBlank()) {
+                        ChatCompletionResult.Usage usage = result.usage();
+                        conversation.setSummary(result.content().strip(), usage != null && usage.completionTokens() > 0
+                                ? (int) usage.completionTokens()
+                                : TokenEstimator.estimate(result.content()));
+                        trimmedSummarized.increment();
+                    } else {
+                        // The turns are gone either way; an old summary still covers what it covered
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.warn("Could not summarise conversation {}, dropping old turns: {}", conversation.getId(),
+                                cause != null ? cause.getMessage() : "empty summary");
+                        trimmedDropped.increment();
+                    }
+                    return true;
+                });
+    }
+
+    private ChatCompletionRequest request(List<ChatMessage> messages) {
+        return new ChatCompletionRequest(DeepSeekService.MODEL, messages, Map.of("max_tokens", maxReplyTokens));
+    }
+
+    private ChatCompletionRequest summaryRequest(String previousSummary, List<ChatMessage> dropped) {
+        String transcript = dropped.stream()
+                .map(message -> message.role() + ": " + message.content())
+                .collect(Collectors.joining("\n\n"));
+        String text = previousSummary != null ? previousSummary + "\n\n" + transcript : transcript;
+        return new ChatCompletionRequest(DeepSeekService.MODEL,
+                List.of(ChatMessage.system(SUMMARY_PROMPT), ChatMessage.user(text)),
+                Map.of("temperature", 0, "max_tokens", summaryMaxTokens));
+    }
+
+    /** Call with the map locked. */
+    private void expireIdle() {
+        long now = System.nanoTime();
+        Iterator<Conversation> oldest = conversations.values().iterator();
+        while (oldest.hasNext()) {
+            Conversation conversation = oldest.next();
+            if (now - conversation.getLastUsedNanos() < idleTimeoutNanos) {
+                // Access order, everything after was used more recently
+                break;
+            }
+            if (!conversation.isBusy()) {
+                oldest.remove();
+                evictedIdle.increment();
+            }
+        }
+    }
+}
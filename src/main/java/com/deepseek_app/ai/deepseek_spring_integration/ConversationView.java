@@ -0,0 +1,17 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/** A conversation as the API shows it; {@code summary} is set once old turns were summarised. */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ConversationView(String id, List<ChatMessage> messages, String summary, int contextTokens,
+                               Instant createdAt) {
+
+    static ConversationView of(Conversation conversation) {
+        return new ConversationView(conversation.getId(), conversation.getMessages(), conversation.getSummary(),
+                conversation.promptTokens(0), conversation.getCreatedAt());
+    }
+}
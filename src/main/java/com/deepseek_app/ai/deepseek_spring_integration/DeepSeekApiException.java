@@ -0,0 +1,37 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * DeepSeek answered with a non-2xx status. Carries the status and, for 429 and 503, the delay
+ * the server asked for in {@code Retry-After}.
+ */
+public class DeepSeekApiException extends IOException {
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public DeepSeekApiException(int statusCode, String body, Duration retryAfter) {
+        super("DeepSeek returned status " + statusCode + ": " + body);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** The server's requested delay, or {@code null} if it sent none. */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+}
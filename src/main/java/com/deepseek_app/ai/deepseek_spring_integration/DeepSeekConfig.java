@@ -1,28 +1,125 @@
 package com.deepseek_app.ai.deepseek_spring_integration;
 
-import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class DeepSeekConfig {
 
     @Value("${spring.ai.openai.api-key}")
     private String apiKey;
 
+    @Value("${deepseek.http.pool.max-total:200}")
+    private int maxTotal;
+
+    @Value("${deepseek.http.pool.max-per-route:200}")
+    private int maxPerRoute;
+
+    @Value("${deepseek.http.pool.time-to-live-ms:300000}")
+    private long timeToLiveMs;
+
+    @Value("${deepseek.http.pool.max-idle-ms:30000}")
+    private long maxIdleMs;
+
+    @Value("${deepseek.http.pool.validate-after-inactivity-ms:2000}")
+    private int validateAfterInactivityMs;
+
+    @Value("${deepseek.http.keep-alive-ms:60000}")
+    private long defaultKeepAliveMs;
+
+    @Value("${deepseek.http.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${deepseek.http.read-timeout-ms:120000}")
+    private int readTimeoutMs;
+
+    @Value("${deepseek.http.pool-acquire-timeout-ms:2000}")
+    private int poolAcquireTimeoutMs;
+
     @Bean
-    public CloseableHttpClient httpClient() {
-        return HttpClients.createDefault();
+    public PoolingHttpClientConnectionManager deepSeekConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(timeToLiveMs, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager deepSeekConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(deepSeekConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Fall back to our own keep-alive when the server does not send a Keep-Alive header
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : defaultKeepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Bean
+    public PoolingNHttpClientConnectionManager deepSeekAsyncConnectionManager(
+            @Value("${deepseek.async.io-threads:0}") int ioThreads,
+            @Value("${deepseek.async.pool.max-total:2000}") int asyncMaxTotal) throws IOReactorException {
+        // A handful of selector threads multiplex every connection; no thread waits on a response
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors())
+                .setConnectTimeout(connectTimeoutMs)
+                .setSoTimeout(readTimeoutMs)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        connectionManager.setMaxTotal(asyncMaxTotal);
+        connectionManager.setDefaultMaxPerRoute(asyncMaxTotal);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient deepSeekAsyncClient(PoolingNHttpClientConnectionManager deepSeekAsyncConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMs)
+                .build();
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(deepSeekAsyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : defaultKeepAliveMs;
+                })
+                .build();
+        client.start();
+        return client;
     }
 
     @Bean
-    public HttpPost deepSeekRequest(@Value("${deepseek.api.url}") String apiUrl) {
-        HttpPost request = new HttpPost(apiUrl);
-        request.addHeader("Content-Type", "application/json");
-        request.addHeader("Authorization", "Bearer " + apiKey);
-        return request;
+    public DeepSeekRequestFactory deepSeekRequestFactory(@Value("${deepseek.api.url}") String apiUrl) {
+        return new DeepSeekRequestFactory(apiUrl, apiKey);
     }
-}
\ No newline at end of file
+}
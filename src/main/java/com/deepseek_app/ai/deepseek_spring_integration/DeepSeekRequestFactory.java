@@ -0,0 +1,33 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpPost;
+
+import java.net.URI;
+
+/**
+ * Builds a fresh {@link HttpPost} for every call so concurrent requests never share
+ * mutable request state. The factory itself only holds the immutable endpoint and key.
+ */
+public final class DeepSeekRequestFactory {
+
+    private final URI apiUri;
+    private final String authorization;
+
+    public DeepSeekRequestFactory(String apiUrl, String apiKey) {
+        this.apiUri = URI.create(apiUrl);
+        this.authorization = "Bearer " + apiKey;
+    }
+
+    public HttpPost createPost(HttpEntity entity) {
+        HttpPost request = new HttpPost(apiUri);
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        request.setEntity(entity);
+        return request;
+    }
+
+    public URI getApiUri() {
+        return apiUri;
+    }
+}
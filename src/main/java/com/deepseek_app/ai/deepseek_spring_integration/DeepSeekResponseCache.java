@@ -0,0 +1,226 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Optional cache in front of DeepSeek completions. Entries expire after a TTL and the cache is
+ * capped by entry count. Concurrent calls with the same key share one upstream request instead
+ * of each paying for their own.
+ */
+@Component
+@Slf4j
+public class DeepSeekResponseCache {
+
+    /**
+     * Normalised identity of a completion request. Whitespace at the ends of a message and line
+     * endings do not change the answer, so they do not change the key either.
+     */
+    public record Key(String model, List<ChatMessage> messages, SortedMap<String, String> options) {
+
+        public static Key of(String model, List<ChatMessage> messages, Map<String, ?> options) {
+            List<ChatMessage> normalizedMessages = messages.stream()
+                    .map(message -> new ChatMessage(
+                            message.role().trim().toLowerCase(Locale.ROOT),
+                            message.content().replace("\r\n", "\n").strip()))
+                    .toList();
+            SortedMap<String, String> normalizedOptions = new TreeMap<>();
+            options.forEach((name, value) -> {
+                if (value != null) {
+                    normalizedOptions.put(name, String.valueOf(value));
+                }
+            });
+            return new Key(model.trim().toLowerCase(Locale.ROOT), normalizedMessages,
+                    Collections.unmodifiableSortedMap(normalizedOptions));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    public record Stats(long hits, long misses, long coalesced, int entries) {}
+
+    private record CachedValue(Object value, long expiresAtNanos) {}
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<Key, CachedValue> entries;
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public DeepSeekResponseCache(@Value("${deepseek.cache.enabled:false}") boolean enabled,
+                                 @Value("${deepseek.cache.ttl-ms:60000}") long ttlMs,
+                                 @Value("${deepseek.cache.max-entries:1000}") int maxEntries) {
+        this.enabled = enabled;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(128, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedValue> eldest) {
+                return size() > DeepSeekResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, or loads it. While a load is running, callers with
+     * the same key wait for it and get the same result. Only values accepted by
+     * {@code cacheable} are kept after the load finishes.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Key key, Loader<V> loader, Predicate<V> cacheable) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Object cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return (V) cached;
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (V) await(running);
+        }
+
+        misses.incrementAndGet();
+        try {
+            V value = loader.load();
+            if (cacheable.test(value)) {
+                store(key, value);
+            }
+            call.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or the callers waiting on this load would wait forever
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get}: hits, and callers that join an identical running
+     * load, get a future instead of waiting on a thread. Async and blocking callers with the
+     * same key share one load.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> getAsync(Key key, Supplier<CompletableFuture<V>> loader, Predicate<V> cacheable) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Object cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture((V) cached);
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            // A copy, so one caller cancelling does not cancel the shared load
+            return running.thenApply(value -> (V) value);
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<V> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((value, error) -> {
+            if (error == null && cacheable.test(value)) {
+                store(key, value);
+            }
+            inFlight.remove(key, call);
+            if (error == null) {
+                call.complete(value);
+            } else {
+                call.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        return call.thenApply(value -> (V) value);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), coalesced.get(), entries.size());
+        }
+    }
+
+    private Object lookup(Key key) {
+        synchronized (entries) {
+            CachedValue cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return cached.value();
+        }
+    }
+
+    private void store(Key key, Object value) {
+        synchronized (entries) {
+            entries.put(key, new CachedValue(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -1,45 +1,422 @@
 package com.deepseek_app.ai.deepseek_spring_integration;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import java.io.BufferedReader;
 import java.io.IOException;
-import org.apache.http.entity.StringEntity;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.util.EntityUtils;
 
 @Service
 @Slf4j
 public class DeepSeekService {
 
+    static final String MODEL = "deepseek-chat";
+
+    /** How {@link #completeAsync} waits for DeepSeek. */
+    public enum AsyncMode {
+        /** On the async client's I/O reactor: a few selector threads serve every call in flight. */
+        NON_BLOCKING,
+        /** The blocking client on one virtual thread per call; needs JDK 21+. */
+        VIRTUAL_THREADS
+    }
+
     private final CloseableHttpClient httpClient;
-    private final HttpPost httpPost;
+    private final CloseableHttpAsyncClient asyncClient;
+    private final Executor virtualThreads;
+    private final ProviderRouter providerRouter;
+    private final DeepSeekResponseCache responseCache;
+    private final DeepSeekTrafficGovernor trafficGovernor;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deepseek-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    public DeepSeekService(CloseableHttpClient httpClient, HttpPost httpPost) {
+    public DeepSeekService(CloseableHttpClient httpClient, CloseableHttpAsyncClient asyncClient,
+                           ProviderRouter providerRouter, DeepSeekResponseCache responseCache,
+                           DeepSeekTrafficGovernor trafficGovernor, MeterRegistry meterRegistry,
+                           @Value("${deepseek.async.mode:NON_BLOCKING}") AsyncMode asyncMode) {
         this.httpClient = httpClient;
-        this.httpPost = httpPost;
+        this.asyncClient = asyncClient;
+        this.virtualThreads = asyncMode == AsyncMode.VIRTUAL_THREADS ? virtualThreadExecutor() : null;
+        this.providerRouter = providerRouter;
+        this.responseCache = responseCache;
+        this.trafficGovernor = trafficGovernor;
+        this.meterRegistry = meterRegistry;
     }
 
     public String generateText(String prompt) throws IOException {
-        String requestBody = String.format("""
-            {
-                "model": "deepseek-chat",
-                "messages": [
-                    {"role": "user", "content": "%s"}
-                ]
-            }
-            """, prompt);
+        return generateText(prompt, null);
+    }
+
+    /**
+     * Like {@link #generateText(String)}, but aborts the upstream call once {@code deadline} has
+     * passed so the connection goes back to the pool instead of waiting for the read timeout.
+     */
+    public String generateText(String prompt, Duration deadline) throws IOException {
+        return complete(ChatCompletionRequest.ofPrompt(MODEL, prompt), deadline).content();
+    }
+
+    /**
+     * Sends a chat completion and returns the first choice's content and the token usage.
+     * Identical concurrent calls share one governed upstream call, retries included.
+     *
+     * @throws DeepSeekApiException         if DeepSeek answers with a non-2xx status
+     * @throws DeepSeekUnavailableException if the traffic governor did not let the call through
+     * @throws IOException                  if the call fails
+     */
+    public ChatCompletionResult complete(ChatCompletionRequest completion, Duration deadline) throws IOException {
+        DeepSeekResponseCache.Key key =
+                DeepSeekResponseCache.Key.of(completion.model(), completion.messages(), completion.options());
+        // Failures are shared with concurrent callers but never cached
+        return responseCache.get(key,
+                () -> trafficGovernor.call(deadline, remaining -> execute(completion, remaining)),
+                DeepSeekService::isCacheable);
+    }
+
+    public CompletableFuture<String> generateTextAsync(String prompt, Duration deadline) {
+        return completeAsync(ChatCompletionRequest.ofPrompt(MODEL, prompt), deadline)
+                .thenApply(ChatCompletionResult::content);
+    }
+
+    /**
+     * Like {@link #complete}, but returns at once. No thread waits for DeepSeek, for a governor
+     * permit or for an identical call already running; the future fails with the same
+     * exceptions {@link #complete} throws.
+     */
+    public CompletableFuture<ChatCompletionResult> completeAsync(ChatCompletionRequest completion, Duration deadline) {
+        if (virtualThreads != null) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return complete(completion, deadline);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, virtualThreads);
+        }
+        DeepSeekResponseCache.Key key =
+                DeepSeekResponseCache.Key.of(completion.model(), completion.messages(), completion.options());
+        return responseCache.getAsync(key,
+                () -> trafficGovernor.callAsync(deadline, remaining -> executeAsync(completion, remaining)),
+                DeepSeekService::isCacheable);
+    }
+
+    /** An empty answer is worth asking for again rather than serving to every identical call. */
+    private static boolean isCacheable(ChatCompletionResult result) {
+        return result.content() != null && !result.content().isBlank();
+    }
+
+    private CompletableFuture<ChatCompletionResult> executeAsync(ChatCompletionRequest completion, Duration deadline) {
+        long deadlineNanos = deadline == null ? 0 : System.nanoTime() + deadline.toNanos();
+        // A hedge starts later than the first call and only gets what is left of the deadline
+        return providerRouter.callAsync(provider -> executeAsync(provider, completion,
+                deadline == null ? null : Duration.ofNanos(Math.max(1, deadlineNanos - System.nanoTime()))));
+    }
 
+    private CompletableFuture<ChatCompletionResult> executeAsync(ChatProvider provider, ChatCompletionRequest completion,
+                                                                 Duration deadline) {
+        HttpPost request;
         try {
-            httpPost.setEntity(new StringEntity(requestBody));
-            CloseableHttpResponse response = httpClient.execute(httpPost);
-            return EntityUtils.toString(response.getEntity());
+            // The async client would buffer a streaming entity through getContent() anyway
+            request = provider.getRequestFactory()
+                    .createPost(ChatCompletionCodec.toAsyncEntity(provider.prepare(completion), false));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<ChatCompletionResult> result = new CompletableFuture<>();
+        // The callbacks run on the I/O reactor, so they only parse the already buffered body
+        Future<HttpResponse> exchange = asyncClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(HttpResponse response) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                try {
+                    if (statusCode < 200 || statusCode >= 300) {
+                        throw apiException(response);
+                    }
+                    HttpEntity entity = response.getEntity();
+                    if (entity == null) {
+                        throw new IOException("DeepSeek returned status " + statusCode + " without a body");
+                    }
+                    ChatCompletionResult parsed;
+                    try (InputStream content = entity.getContent()) {
+                        parsed = ChatCompletionCodec.readResult(content);
+                    }
+                    recordUsage(parsed.usage());
+                    result.complete(parsed);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    sample.stop(upstreamTimer("generate", provider, String.valueOf(statusCode)));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                log.error("API request to {} failed: {}", provider, e.getMessage());
+                sample.stop(upstreamTimer("generate", provider, "IO_ERROR"));
+                result.completeExceptionally(e instanceof IOException ? e : new IOException(e));
+            }
+
+            @Override
+            public void cancelled() {
+                // Cancelled by the caller when another provider answered a hedged call first
+                sample.stop(upstreamTimer("generate", provider,
+                        result.isCancelled() ? "CANCELLED" : deadline != null ? "TIMEOUT" : "IO_ERROR"));
+                result.completeExceptionally(deadline != null
+                        ? new SocketTimeoutException("DeepSeek did not answer within " + deadline.toMillis() + " ms")
+                        : new IOException("DeepSeek request was cancelled"));
+            }
+        });
+        if (deadline != null) {
+            ScheduledFuture<?> cancelAtDeadline = deadlineScheduler.schedule(() -> exchange.cancel(true),
+                    deadline.toMillis(), TimeUnit.MILLISECONDS);
+            result.whenComplete((parsed, error) -> cancelAtDeadline.cancel(false));
+        }
+        result.whenComplete((parsed, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private ChatCompletionResult execute(ChatCompletionRequest completion, Duration deadline) throws IOException {
+        if (providerRouter.isHedging()) {
+            // A hedge needs a second call in flight, the non-blocking client runs it without another thread
+            return await(executeAsync(completion, deadline));
+        }
+        return providerRouter.call(provider -> execute(provider, completion, deadline), true);
+    }
+
+    private ChatCompletionResult execute(ChatProvider provider, ChatCompletionRequest completion, Duration deadline)
+            throws IOException {
+        HttpPost request = provider.getRequestFactory()
+                .createPost(ChatCompletionCodec.toEntity(provider.prepare(completion), false));
+        ScheduledFuture<?> abortAtDeadline = deadline == null ? null
+                : deadlineScheduler.schedule(request::abort, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "IO_ERROR";
+        // Closing the content stream consumes whatever the parser left unread, so the connection
+        // goes back to the pool reusable for keep-alive.
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            status = String.valueOf(statusCode);
+            HttpEntity entity = response.getEntity();
+            if (statusCode < 200 || statusCode >= 300) {
+                throw apiException(response);
+            }
+            if (entity == null) {
+                throw new IOException("DeepSeek returned status " + statusCode + " without a body");
+            }
+            ChatCompletionResult result;
+            try (InputStream content = entity.getContent()) {
+                result = ChatCompletionCodec.readResult(content);
+            }
+            recordUsage(result.usage());
+            return result;
+        } catch (DeepSeekApiException e) {
+            throw e;
+        } catch (IOException e) {
+            if (abortAtDeadline != null && request.isAborted()) {
+                status = "TIMEOUT";
+                throw new SocketTimeoutException("DeepSeek did not answer within " + deadline.toMillis() + " ms");
+            }
+            log.error("API request to {} failed: {}", provider, e.getMessage());
+            throw e;
+        } finally {
+            if (abortAtDeadline != null) {
+                abortAtDeadline.cancel(false);
+            }
+            sample.stop(upstreamTimer("generate", provider, status));
+        }
+    }
+
+    /**
+     * Sends the prompt with {@code stream: true} and hands every content delta to the listener
+     * as soon as it is read. Deltas are read only as fast as the listener consumes them, so a
+     * slow consumer slows down the upstream read instead of piling deltas up in memory.
+     */
+    public void streamText(String prompt, StreamListener listener) throws IOException {
+        trafficGovernor.callStream(remaining -> providerRouter.call(provider -> {
+            streamOnce(provider, prompt, listener);
+            return null;
+        }, false));
+    }
+
+    private void streamOnce(ChatProvider provider, String prompt, StreamListener listener) throws IOException {
+        HttpPost request = provider.getRequestFactory().createPost(
+                ChatCompletionCodec.toEntity(provider.prepare(ChatCompletionRequest.ofPrompt(MODEL, prompt)), true));
+        request.addHeader(HttpHeaders.ACCEPT, "text/event-stream");
+        listener.onOpen(request::abort);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "IO_ERROR";
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            outcome = String.valueOf(status);
+            if (status < 200 || status >= 300) {
+                throw apiException(response);
+            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring("data:".length()).trim();
+                    if ("[DONE]".equals(data)) {
+                        break;
+                    }
+                    String delta = ChatCompletionCodec.readDelta(data);
+                    if (delta.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        listener.onDelta(delta);
+                    } catch (IOException e) {
+                        // The consumer went away. Abort rather than close, closing a chunked
+                        // stream would drain the rest of the completion first.
+                        log.debug("Stream consumer failed, aborting upstream: {}", e.getMessage());
+                        request.abort();
+                        outcome = "CLIENT_ABORT";
+                        return;
+                    }
+                }
+            }
+        } catch (DeepSeekApiException e) {
+            throw e;
         } catch (IOException e) {
-            log.error("API request failed: {}", e.getMessage());
+            if (request.isAborted()) {
+                outcome = "CLIENT_ABORT";
+                log.debug("Stream aborted by the client");
+                return;
+            }
+            log.error("API streaming request to {} failed: {}", provider, e.getMessage());
             throw e;
+        } finally {
+            sample.stop(upstreamTimer("stream", provider, outcome));
+        }
+    }
+
+    private static DeepSeekApiException apiException(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        return new DeepSeekApiException(response.getStatusLine().getStatusCode(), body,
+                retryAfter == null ? null : parseRetryAfter(retryAfter.getValue()));
+    }
+
+    /** Retry-After is either delay-seconds or an HTTP date. */
+    static Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? null
+                    : Duration.ofMillis(Math.max(0, date.getTime() - System.currentTimeMillis()));
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for DeepSeek");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private Timer upstreamTimer(String operation, ChatProvider provider, String status) {
+        return Timer.builder("deepseek.requests")
+                .description("Chat completion calls, until the last byte was read")
+                .tag("operation", operation)
+                .tag("provider", provider.getName())
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    private void recordUsage(ChatCompletionResult.Usage usage) {
+        if (usage != null) {
+            recordTokens("prompt", usage.promptTokens());
+            recordTokens("completion", usage.completionTokens());
+            recordTokens("prompt_cached", usage.cachedPromptTokens());
+        }
+    }
+
+    private void recordTokens(String type, long tokens) {
+        DistributionSummary.builder("deepseek.tokens")
+                .description("Tokens per DeepSeek request, from the response usage block")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(tokens);
+    }
+
+    private static Executor virtualThreadExecutor() {
+        try {
+            return new VirtualThreadTaskExecutor("deepseek-vt-");
+        } catch (UnsupportedOperationException e) {
+            log.warn("Virtual threads need JDK 21+, falling back to the non-blocking DeepSeek client");
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlineScheduler.shutdownNow();
+    }
+
+    public interface StreamListener {
+
+        /** Called before the request is sent with a handle that aborts the upstream call. */
+        default void onOpen(Runnable abort) {
         }
+
+        void onDelta(String delta) throws IOException;
     }
 }
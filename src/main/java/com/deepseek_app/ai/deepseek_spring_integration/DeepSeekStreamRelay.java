@@ -0,0 +1,123 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Relays DeepSeek completion deltas to a browser as Server-Sent Events. Each stream runs on a
+ * bounded relay pool so slow clients never hold servlet threads.
+ */
+@Component
+@Slf4j
+public class DeepSeekStreamRelay {
+
+    private final DeepSeekService deepSeekService;
+    private final ThreadPoolExecutor executor;
+    private final long emitterTimeoutMs;
+
+    public DeepSeekStreamRelay(DeepSeekService deepSeekService,
+                               @Value("${deepseek.stream.max-concurrent:64}") int maxConcurrent,
+                               @Value("${deepseek.stream.queue-capacity:128}") int queueCapacity,
+                               @Value("${deepseek.stream.timeout-ms:300000}") long emitterTimeoutMs) {
+        this.deepSeekService = deepSeekService;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "deepseek-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public SseEmitter stream(String prompt) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicReference<Runnable> abortUpstream = new AtomicReference<>();
+
+        Runnable onClientGone = () -> {
+            closed.set(true);
+            Runnable abort = abortUpstream.get();
+            if (abort != null) {
+                abort.run();
+            }
+        };
+        emitter.onCompletion(onClientGone);
+        emitter.onTimeout(onClientGone);
+        emitter.onError(error -> onClientGone.run());
+
+        try {
+            executor.execute(() -> relay(prompt, emitter, closed, abortUpstream));
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejecting stream, relay pool is saturated");
+            sendError(emitter, "Too many concurrent streams, try again later");
+        }
+        return emitter;
+    }
+
+    private void relay(String prompt, SseEmitter emitter, AtomicBoolean closed,
+                       AtomicReference<Runnable> abortUpstream) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            deepSeekService.streamText(prompt, new DeepSeekService.StreamListener() {
+                @Override
+                public void onOpen(Runnable abort) {
+                    abortUpstream.set(abort);
+                    // The client may have disconnected while we were queued
+                    if (closed.get()) {
+                        abort.run();
+                    }
+                }
+
+                @Override
+                public void onDelta(String delta) throws IOException {
+                    if (closed.get()) {
+                        throw new IOException("Client disconnected");
+                    }
+                    // send() writes straight to the servlet response, so a slow client
+                    // blocks this thread and with it the upstream read
+                    emitter.send(SseEmitter.event().data(delta));
+                }
+            });
+            if (!closed.get()) {
+                emitter.send(SseEmitter.event().name("done").data("[DONE]"));
+                emitter.complete();
+            }
+        } catch (IOException e) {
+            if (!closed.get()) {
+                sendError(emitter, "Error processing request: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sendError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(message));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
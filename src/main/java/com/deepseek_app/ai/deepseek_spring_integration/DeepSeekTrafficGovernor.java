@@ -0,0 +1,438 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shapes outbound DeepSeek traffic so a burst does not turn into a rate-limit storm. Every call
+ * passes the circuit breaker, takes a token from the rate limiter and a slot from the adaptive
+ * concurrency limiter, in that order. Failed attempts are retried with jittered exponential
+ * backoff, or after the server's {@code Retry-After}, as long as the caller's deadline allows.
+ */
+@Component
+@Slf4j
+public class DeepSeekTrafficGovernor {
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        /** One upstream call; {@code remaining} is what is left of the deadline, or null. */
+        T run(Duration remaining) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface AsyncAttempt<T> {
+        /** Starts one upstream call without blocking. */
+        CompletableFuture<T> run(Duration remaining);
+    }
+
+    private final boolean enabled;
+    private final TokenBucket tokenBucket;
+    private final AimdConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final long maxWaitNanos;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long rateRetryAfterMs;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer admissionWait;
+    // Only times rate-limit waits, slot timeouts and backoffs for async calls; never runs a call
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deepseek-governor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeepSeekTrafficGovernor(MeterRegistry meterRegistry,
+                                   @Value("${deepseek.governor.enabled:true}") boolean enabled,
+                                   @Value("${deepseek.governor.rate.permits-per-second:10}") double permitsPerSecond,
+                                   @Value("${deepseek.governor.rate.burst:10}") int burst,
+                                   @Value("${deepseek.governor.max-wait-ms:10000}") long maxWaitMs,
+                                   @Value("${deepseek.governor.concurrency.initial:8}") int initialConcurrency,
+                                   @Value("${deepseek.governor.concurrency.min:1}") int minConcurrency,
+                                   @Value("${deepseek.governor.concurrency.max:64}") int maxConcurrency,
+                                   @Value("${deepseek.governor.concurrency.backoff-ratio:0.7}") double backoffRatio,
+                                   @Value("${deepseek.governor.concurrency.latency-threshold-ms:30000}") long latencyThresholdMs,
+                                   @Value("${deepseek.governor.retry.max-attempts:3}") int maxAttempts,
+                                   @Value("${deepseek.governor.retry.base-backoff-ms:250}") long baseBackoffMs,
+                                   @Value("${deepseek.governor.retry.max-backoff-ms:10000}") long maxBackoffMs,
+                                   @Value("${deepseek.governor.circuit.window:20}") int circuitWindow,
+                                   @Value("${deepseek.governor.circuit.min-calls:10}") int circuitMinCalls,
+                                   @Value("${deepseek.governor.circuit.failure-rate:0.5}") double circuitFailureRate,
+                                   @Value("${deepseek.governor.circuit.open-ms:30000}") long circuitOpenMs,
+                                   @Value("${deepseek.governor.circuit.half-open-probes:3}") int halfOpenProbes) {
+        this.enabled = enabled;
+        this.tokenBucket = new TokenBucket(permitsPerSecond, burst);
+        this.concurrencyLimiter = new AimdConcurrencyLimiter(initialConcurrency, minConcurrency, maxConcurrency,
+                backoffRatio, latencyThresholdMs);
+        this.circuitBreaker = new CircuitBreaker(circuitWindow, circuitMinCalls, circuitFailureRate,
+                Duration.ofMillis(circuitOpenMs), halfOpenProbes);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(baseBackoffMs);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMs);
+        this.rateRetryAfterMs = (long) Math.ceil(1000 / permitsPerSecond);
+        this.meterRegistry = meterRegistry;
+        this.admissionWait = Timer.builder("deepseek.governor.wait")
+                .description("Time calls waited for a rate token and a concurrency slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a completion call under the governor.
+     *
+     * @throws DeepSeekUnavailableException if the call was not admitted
+     * @throws DeepSeekApiException         if the last attempt got a non-2xx answer
+     */
+    public <T> T call(Duration deadline, Attempt<T> attempt) throws IOException {
+        return run(deadline, attempt, false);
+    }
+
+    /**
+     * Runs a streaming call. Streams are bounded by the relay pool rather than the concurrency
+     * limiter, whose latency signal they would distort, and are only retried on a non-2xx
+     * status, since after that deltas may already have been delivered.
+     */
+    public <T> T callStream(Attempt<T> attempt) throws IOException {
+        return run(null, attempt, true);
+    }
+
+    /**
+     * Non-blocking variant of {@link #call}: waiting for a rate token, a concurrency slot or a
+     * retry holds no thread, so thousands of calls can wait at the cost of a future each.
+     */
+    public <T> CompletableFuture<T> callAsync(Duration deadline, AsyncAttempt<T> attempt) {
+        if (!enabled) {
+            return attempt.run(deadline);
+        }
+        long deadlineNanos = deadline == null ? Long.MAX_VALUE : System.nanoTime() + deadline.toNanos();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attemptAsync(1, deadline, deadlineNanos, attempt, result);
+        return result;
+    }
+
+    private <T> T run(Duration deadline, Attempt<T> attempt, boolean streaming) throws IOException {
+        if (!enabled) {
+            return attempt.run(deadline);
+        }
+        long deadlineNanos = deadline == null ? Long.MAX_VALUE : System.nanoTime() + deadline.toNanos();
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            remaining(deadline, deadlineNanos);
+            admit(deadlineNanos, streaming);
+            long start = System.nanoTime();
+            IOException failure;
+            try {
+                T result = attempt.run(remaining(deadline, deadlineNanos));
+                finish(start, streaming, AimdConcurrencyLimiter.Outcome.SUCCESS, true);
+                return result;
+            } catch (IOException e) {
+                failure = e;
+                if (!onFailure(e, start, streaming)) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                finish(start, streaming, AimdConcurrencyLimiter.Outcome.IGNORE, null);
+                throw e;
+            }
+            long backoffNanos = retryBackoffNanos(attemptNumber, failure, deadlineNanos);
+            if (backoffNanos < 0) {
+                throw failure;
+            }
+            sleep(backoffNanos);
+        }
+    }
+
+    private <T> void attemptAsync(int attemptNumber, Duration deadline, long deadlineNanos,
+                                  AsyncAttempt<T> attempt, CompletableFuture<T> result) {
+        long start = System.nanoTime();
+        long maxWait = Math.min(maxWaitNanos, deadlineNanos - start);
+        try {
+            remaining(deadline, deadlineNanos);
+            Duration openFor = circuitBreaker.tryAcquire();
+            if (openFor != null) {
+                reject("circuit_open");
+                throw new DeepSeekUnavailableException("DeepSeek circuit breaker is open", openFor);
+            }
+            long waitNanos = tokenBucket.reserve(maxWait);
+            if (waitNanos < 0) {
+                circuitBreaker.onIgnored();
+                reject("rate_limit");
+                throw new DeepSeekUnavailableException("DeepSeek outbound rate limit reached",
+                        Duration.ofMillis(rateRetryAfterMs));
+            }
+            after(waitNanos, () -> acquireSlotAsync(start, maxWait).whenComplete((slot, slotError) -> {
+                admissionWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (slotError != null) {
+                    circuitBreaker.onIgnored();
+                    result.completeExceptionally(slotError);
+                    return;
+                }
+                runAttemptAsync(attemptNumber, deadline, deadlineNanos, attempt, result);
+            }));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private <T> void runAttemptAsync(int attemptNumber, Duration deadline, long deadlineNanos,
+                                     AsyncAttempt<T> attempt, CompletableFuture<T> result) {
+        long start = System.nanoTime();
+        CompletableFuture<T> call;
+        try {
+            call = attempt.run(remaining(deadline, deadlineNanos));
+        } catch (IOException | RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                finish(start, false, AimdConcurrencyLimiter.Outcome.SUCCESS, true);
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (!(cause instanceof IOException failure)) {
+                finish(start, false, AimdConcurrencyLimiter.Outcome.IGNORE, null);
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!onFailure(failure, start, false)) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            long backoffNanos = retryBackoffNanos(attemptNumber, failure, deadlineNanos);
+            if (backoffNanos < 0) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            after(backoffNanos, () -> attemptAsync(attemptNumber + 1, deadline, deadlineNanos, attempt, result));
+        });
+    }
+
+    private CompletableFuture<Void> acquireSlotAsync(long start, long maxWait) {
+        CompletableFuture<Void> slot = concurrencyLimiter.acquireAsync();
+        if (!slot.isDone()) {
+            long timeout = maxWait - (System.nanoTime() - start);
+            ScheduledFuture<?> expiry = scheduler.schedule(() -> {
+                if (slot.completeExceptionally(new DeepSeekUnavailableException(
+                        "Too many DeepSeek calls in flight", Duration.ofMillis(rateRetryAfterMs)))) {
+                    reject("concurrency");
+                }
+            }, Math.max(0, timeout), TimeUnit.NANOSECONDS);
+            slot.whenComplete((ok, error) -> expiry.cancel(false));
+        }
+        return slot;
+    }
+
+    /**
+     * Reports a failed attempt to the limiters and returns whether it may be retried.
+     */
+    private boolean onFailure(IOException failure, long start, boolean streaming) {
+        if (failure instanceof DeepSeekUnavailableException) {
+            // Refused before it went out, e.g. by every provider's breaker; already counted there
+            finish(start, streaming, AimdConcurrencyLimiter.Outcome.IGNORE, null);
+            return false;
+        }
+        if (failure instanceof DeepSeekApiException e) {
+            if (e.isRateLimited()) {
+                if (e.getRetryAfter() != null) {
+                    // Everyone else would get the same answer, hold them all back
+                    tokenBucket.pause(e.getRetryAfter().toNanos());
+                }
+                finish(start, streaming, AimdConcurrencyLimiter.Outcome.OVERLOAD, null);
+            } else {
+                finish(start, streaming, e.getStatusCode() == 503
+                        ? AimdConcurrencyLimiter.Outcome.OVERLOAD
+                        : AimdConcurrencyLimiter.Outcome.IGNORE, !e.isServerError());
+            }
+            return isRetryable(e);
+        }
+        finish(start, streaming, failure instanceof SocketTimeoutException
+                ? AimdConcurrencyLimiter.Outcome.OVERLOAD
+                : AimdConcurrencyLimiter.Outcome.IGNORE, false);
+        return !streaming && isRetryable(failure);
+    }
+
+    /** Backoff before the next attempt, or -1 if attempts or the deadline are used up. */
+    private long retryBackoffNanos(int attemptNumber, IOException failure, long deadlineNanos) {
+        if (attemptNumber >= maxAttempts) {
+            return -1;
+        }
+        Duration retryAfter = failure instanceof DeepSeekApiException api ? api.getRetryAfter() : null;
+        long backoffNanos = backoffNanos(attemptNumber, retryAfter);
+        if (backoffNanos < 0 || System.nanoTime() + backoffNanos >= deadlineNanos) {
+            return -1;
+        }
+        log.debug("Retrying DeepSeek call in {} ms after: {}",
+                TimeUnit.NANOSECONDS.toMillis(backoffNanos), failure.getMessage());
+        Counter.builder("deepseek.governor.retries")
+                .description("Attempts retried after a failure")
+                .tag("reason", failure instanceof DeepSeekApiException api
+                        ? String.valueOf(api.getStatusCode())
+                        : failure.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+        return backoffNanos;
+    }
+
+    private void after(long nanos, Runnable task) {
+        if (nanos <= 0) {
+            task.run();
+        } else {
+            scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void admit(long deadlineNanos, boolean streaming) throws IOException {
+        Duration openFor = circuitBreaker.tryAcquire();
+        if (openFor != null) {
+            reject("circuit_open");
+            throw new DeepSeekUnavailableException("DeepSeek circuit breaker is open", openFor);
+        }
+        long start = System.nanoTime();
+        try {
+            long waitNanos = tokenBucket.reserve(Math.min(maxWaitNanos, deadlineNanos - start));
+            if (waitNanos < 0) {
+                reject("rate_limit");
+                throw new DeepSeekUnavailableException("DeepSeek outbound rate limit reached",
+                        Duration.ofMillis(rateRetryAfterMs));
+            }
+            sleep(waitNanos);
+            if (!streaming) {
+                long slotWait = Math.min(maxWaitNanos, deadlineNanos - start) - (System.nanoTime() - start);
+                if (!concurrencyLimiter.acquire(slotWait)) {
+                    reject("concurrency");
+                    throw new DeepSeekUnavailableException("Too many DeepSeek calls in flight",
+                            Duration.ofMillis(rateRetryAfterMs));
+                }
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call DeepSeek");
+        } catch (IOException | RuntimeException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        } finally {
+            admissionWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Releases the concurrency slot and reports the outcome.
+     *
+     * @param healthy true or false to count the call for or against the circuit breaker, null
+     *                if it says nothing about upstream health
+     */
+    private void finish(long start, boolean streaming, AimdConcurrencyLimiter.Outcome outcome, Boolean healthy) {
+        if (!streaming) {
+            concurrencyLimiter.release(outcome, System.nanoTime() - start);
+        }
+        if (healthy == null) {
+            circuitBreaker.onIgnored();
+        } else if (healthy) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    /** Full jitter, or the server's delay plus a little jitter; -1 if that delay is too long. */
+    private long backoffNanos(int attemptNumber, Duration retryAfter) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (retryAfter != null) {
+            long requested = retryAfter.toNanos();
+            return requested > maxBackoffNanos ? -1 : requested + random.nextLong(baseBackoffNanos + 1);
+        }
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(20, attemptNumber - 1));
+        return random.nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof DeepSeekApiException api) {
+            int status = api.getStatusCode();
+            return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+        }
+        // Failures where the request cannot have been processed; read timeouts are not retried
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException
+                || e instanceof NoHttpResponseException;
+    }
+
+    private static Duration remaining(Duration deadline, long deadlineNanos) throws SocketTimeoutException {
+        if (deadline == null) {
+            return null;
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("DeepSeek did not answer within " + deadline.toMillis() + " ms");
+        }
+        return Duration.ofNanos(remaining);
+    }
+
+    private void reject(String reason) {
+        Counter.builder("deepseek.governor.rejected")
+                .description("Calls failed fast without reaching DeepSeek")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public double getConcurrencyLimit() {
+        return concurrencyLimiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return concurrencyLimiter.getInFlight();
+    }
+
+    public double getAvailableTokens() {
+        return tokenBucket.getAvailableTokens();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getCircuitOpenedCount() {
+        return circuitBreaker.getOpenedCount();
+    }
+}
@@ -0,0 +1,22 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * The call was not sent: the circuit breaker is open, or no rate or concurrency permit became
+ * free in time. Nothing reached DeepSeek, so retrying after {@link #getRetryAfter()} is safe.
+ */
+public class DeepSeekUnavailableException extends IOException {
+
+    private final Duration retryAfter;
+
+    public DeepSeekUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,19 +1,39 @@
 package com.deepseek_app.ai.deepseek_spring_integration;
 
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
-public class DeepseekSpringIntegrationApplication {
+@Push
+public class DeepseekSpringIntegrationApplication implements AppShellConfigurator {
+
+	static volatile long MAIN_STARTED_MILLIS;
 
 	public static void main(String[] args) {
-		SpringApplication.run(DeepseekSpringIntegrationApplication.class, args);
+		MAIN_STARTED_MILLIS = System.currentTimeMillis();
+		SpringApplication application = new SpringApplication(DeepseekSpringIntegrationApplication.class);
+		if (Boolean.getBoolean("startup.analysis")) {
+			// Records every startup step for the report and /actuator/startup; costs a little itself
+			application.setApplicationStartup(new BufferingApplicationStartup(10_000));
+		}
+		ConfigurableApplicationContext context = application.run(args);
+		if (context.getEnvironment().matchesProfiles("bulk")) {
+			// The bulk run is over once the runners return, don't wait for the HTTP client threads
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
+	/** Asks DeepSeek for a sample answer at startup; off by default so boot never waits on the network. */
 	@Bean
+	@ConditionalOnProperty(name = "demo.runner.enabled", havingValue = "true")
 	public CommandLineRunner runner(ChatClient.Builder builder) {
 		return args -> {
 			ChatClient chatClient = builder.build();
@@ -0,0 +1,293 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OCR for single images, multi-page PDFs and multi-frame TIFFs. Pages are rendered one after
+ * the other (a PDF document is not thread-safe) and each page is recognised on its own engine
+ * as soon as it is rendered, so a document takes about as long as its slowest page. Rendered
+ * pages waiting for an engine count against a memory budget shared by all documents. Every
+ * image goes through the {@link ImagePreprocessor} on the page worker before recognition.
+ */
+@Service
+@Slf4j
+public class DocumentOcrService {
+
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F'};
+    private static final byte[] TIFF_LITTLE_ENDIAN = {'I', 'I', 42, 0};
+    private static final byte[] TIFF_BIG_ENDIAN = {'M', 'M', 0, 42};
+
+    private final TesseractPool tesseractPool;
+    private final ImagePreprocessor imagePreprocessor;
+    private final int maxPages;
+    private final float renderDpi;
+    private final int memoryBudgetKb;
+    private final Semaphore memoryBudget;
+    private final ThreadPoolExecutor pageExecutor;
+    private final DistributionSummary pageCounts;
+
+    public DocumentOcrService(TesseractPool tesseractPool,
+                              ImagePreprocessor imagePreprocessor,
+                              MeterRegistry meterRegistry,
+                              @Value("${ocr.document.max-pages:30}") int maxPages,
+                              @Value("${ocr.document.render-dpi:300}") float renderDpi,
+                              @Value("${ocr.document.max-memory-bytes:268435456}") long maxMemoryBytes,
+                              @Value("${ocr.document.threads:0}") int threads) {
+        this.tesseractPool = tesseractPool;
+        this.imagePreprocessor = imagePreprocessor;
+        this.maxPages = maxPages;
+        this.renderDpi = renderDpi;
+        this.memoryBudgetKb = (int) Math.min(Integer.MAX_VALUE, maxMemoryBytes / 1024);
+        this.memoryBudget = new Semaphore(memoryBudgetKb, true);
+        this.pageCounts = DistributionSummary.builder("ocr.document.pages")
+                .description("Pages per OCR'd document")
+                .register(meterRegistry);
+        // More page workers than engines would only wait inside the engine pool
+        int workers = threads > 0 ? threads : tesseractPool.getPoolSize();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Unbounded on purpose: queued pages are already bounded by the memory budget
+        this.pageExecutor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ocr-page-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pageExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the text of every page, in page order.
+     *
+     * @throws IllegalArgumentException if the document has more pages than allowed or a single
+     *                                  page does not fit in the memory budget
+     */
+    public String recognize(Path file) throws IOException, TesseractException, InterruptedException {
+        byte[] header = readHeader(file);
+        if (startsWith(header, PDF_MAGIC)) {
+            return recognizePdf(file);
+        }
+        if (startsWith(header, TIFF_LITTLE_ENDIAN) || startsWith(header, TIFF_BIG_ENDIAN)) {
+            return recognizeTiff(file);
+        }
+        pageCounts.record(1);
+        BufferedImage image = ImageIO.read(file.toFile());
+        if (image == null) {
+            throw new TesseractException("Unsupported image format: " + file.getFileName());
+        }
+        // Photos carry no trustworthy resolution, the preprocessor sizes them by receipt width
+        return tesseractPool.recognize(imagePreprocessor.process(image, null));
+    }
+
+    private String recognizePdf(Path file) throws IOException, TesseractException, InterruptedException {
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            int pages = checkPageCount(document.getNumberOfPages());
+            PDFRenderer renderer = new PDFRenderer(document);
+            return recognizePages(pages, renderDpi,
+                    page -> renderer.renderImageWithDPI(page, renderDpi, ImageType.GRAY));
+        }
+    }
+
+    private String recognizeTiff(Path file) throws IOException, TesseractException, InterruptedException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("No TIFF reader available for " + file.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, true);
+                int pages = checkPageCount(reader.getNumImages(true));
+                return recognizePages(pages, scanDpi(reader), reader::read);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private String recognizePages(int pages, Float sourceDpi, PageRenderer renderer)
+            throws IOException, TesseractException, InterruptedException {
+        pageCounts.record(pages);
+        log.debug("Recognising {} pages on {} page workers", pages, pageExecutor.getMaximumPoolSize());
+        List<Future<String>> results = new ArrayList<>(pages);
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            for (int page = 0; page < pages && !failed.get(); page++) {
+                BufferedImage image = renderer.render(page);
+                int reservedKb = reserveMemory(image, page);
+                results.add(pageExecutor.submit(() -> {
+                    try {
+                        // Once a page failed the document is lost, skip the engines for the rest
+                        return failed.get() ? null
+                                : tesseractPool.recognize(imagePreprocessor.process(image, sourceDpi));
+                    } catch (TesseractException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        memoryBudget.release(reservedKb);
+                    }
+                }));
+            }
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            // Pages already queued still run, but only to give their memory back
+            failed.set(true);
+            throw e;
+        }
+        return mergeInOrder(results);
+    }
+
+    private static String mergeInOrder(List<Future<String>> results)
+            throws TesseractException, InterruptedException {
+        StringBuilder text = new StringBuilder();
+        TesseractException firstError = null;
+        // Wait for every page even after a failure, so no rendered page outlives this call
+        for (Future<String> result : results) {
+            try {
+                String pageText = result.get();
+                if (pageText != null && firstError == null) {
+                    if (text.length() > 0) {
+                        text.append('\n');
+                    }
+                    text.append(pageText);
+                }
+            } catch (ExecutionException e) {
+                if (firstError == null) {
+                    firstError = e.getCause() instanceof TesseractException tesseractException
+                            ? tesseractException
+                            : new TesseractException(e.getCause());
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+        return text.toString();
+    }
+
+    private int reserveMemory(BufferedImage image, int page) throws InterruptedException {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        long bytes = (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        int kb = (int) Math.max(1, (bytes + 1023) / 1024);
+        if (kb > memoryBudgetKb) {
+            throw new IllegalArgumentException("Page " + (page + 1) + " needs " + bytes
+                    + " bytes, more than the OCR memory budget");
+        }
+        memoryBudget.acquire(kb);
+        return kb;
+    }
+
+    /**
+     * Resolution of the first frame from the standard metadata tree, or {@code null} if the
+     * scanner did not record a plausible one.
+     */
+    private static Float scanDpi(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+                return null;
+            }
+            Node root = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+            for (Node dimension = root.getFirstChild(); dimension != null; dimension = dimension.getNextSibling()) {
+                if (!"Dimension".equals(dimension.getNodeName())) {
+                    continue;
+                }
+                for (Node child = dimension.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if ("HorizontalPixelSize".equals(child.getNodeName())) {
+                        // Millimetres per pixel
+                        float dpi = 25.4f / Float.parseFloat(
+                                child.getAttributes().getNamedItem("value").getNodeValue());
+                        return dpi >= 100 ? dpi : null;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read TIFF resolution: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private int checkPageCount(int pages) {
+        if (pages > maxPages) {
+            throw new IllegalArgumentException("Document has " + pages + " pages, at most " + maxPages + " are allowed");
+        }
+        return pages;
+    }
+
+    private static byte[] readHeader(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.readNBytes(4);
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        if (header.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Everything that changes the recognized text: Tesseract, preprocessing and the PDF render DPI. */
+    public String getConfigurationFingerprint() {
+        String settings = tesseractPool.getConfigurationFingerprint() + "|"
+                + imagePreprocessor.getConfigurationFingerprint() + "|" + renderDpi;
+        return ContentHash.sha256Hex(settings.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getAvailableMemoryKb() {
+        return memoryBudget.availablePermits();
+    }
+
+    public int getQueuedPages() {
+        return pageExecutor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pageExecutor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface PageRenderer {
+        BufferedImage render(int page) throws IOException;
+    }
+}
@@ -0,0 +1,398 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cleans up an image before Tesseract sees it. Phone photos are several megapixels of colour,
+ * mostly background; reducing them to a binarized, straightened receipt at OCR resolution
+ * makes recognition much faster and usually more accurate. Stages run in the configured order
+ * and each one is timed.
+ */
+@Component
+@Slf4j
+public class ImagePreprocessor {
+
+    public enum Stage {
+        /** Converts to 8-bit gray. */
+        GRAYSCALE,
+        /** Cuts away the background around the bright paper region. */
+        CROP,
+        /**
+         * Shrinks the image to the target DPI, never enlarges it. Without a known DPI the short
+         * side is taken for the receipt width, so it belongs after {@link #CROP}.
+         */
+        DOWNSCALE,
+        /** Adaptive threshold against the local mean, robust to shadows and uneven light. */
+        BINARIZE,
+        /** Rotates text lines back to horizontal. */
+        DESKEW
+    }
+
+    private static final int WHITE = 255;
+
+    private final boolean enabled;
+    private final List<Stage> stages;
+    private final float targetDpi;
+    private final float assumedWidthMm;
+    private final double maxSkewDegrees;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    public ImagePreprocessor(MeterRegistry meterRegistry,
+                             @Value("${ocr.preprocess.enabled:true}") boolean enabled,
+                             @Value("${ocr.preprocess.stages:grayscale,crop,downscale,binarize,deskew}") List<String> stages,
+                             @Value("${ocr.preprocess.target-dpi:300}") float targetDpi,
+                             @Value("${ocr.preprocess.assumed-width-mm:80}") float assumedWidthMm,
+                             @Value("${ocr.preprocess.max-skew-degrees:10}") double maxSkewDegrees) {
+        this.enabled = enabled;
+        this.stages = stages.stream()
+                .map(stage -> Stage.valueOf(stage.trim().toUpperCase(Locale.ROOT)))
+                .toList();
+        this.targetDpi = targetDpi;
+        this.assumedWidthMm = assumedWidthMm;
+        this.maxSkewDegrees = maxSkewDegrees;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("ocr.preprocess")
+                    .description("Time per image preprocessing stage")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Runs the configured stages.
+     *
+     * @param sourceDpi resolution of the image if known (rendered PDF pages, scans), or
+     *                  {@code null} for photos, whose size is then judged against a receipt of
+     *                  {@code ocr.preprocess.assumed-width-mm}
+     */
+    public BufferedImage process(BufferedImage image, Float sourceDpi) {
+        if (!enabled) {
+            return image;
+        }
+        BufferedImage current = image;
+        for (Stage stage : stages) {
+            long start = System.nanoTime();
+            current = apply(stage, current, sourceDpi);
+            stageTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return current;
+    }
+
+    /** Identifies the settings that change the output, for invalidating cached OCR text. */
+    public String getConfigurationFingerprint() {
+        String settings = enabled + "|" + stages + "|" + targetDpi + "|" + assumedWidthMm + "|" + maxSkewDegrees;
+        return ContentHash.sha256Hex(settings.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BufferedImage apply(Stage stage, BufferedImage image, Float sourceDpi) {
+        return switch (stage) {
+            case GRAYSCALE -> grayscale(image);
+            case DOWNSCALE -> downscale(image, sourceDpi);
+            case CROP -> crop(grayscale(image));
+            case BINARIZE -> binarize(grayscale(image));
+            case DESKEW -> deskew(grayscale(image));
+        };
+    }
+
+    static BufferedImage grayscale(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    BufferedImage downscale(BufferedImage image, Float sourceDpi) {
+        double scale = sourceDpi != null && sourceDpi > 0
+                ? targetDpi / sourceDpi
+                : targetDpi * assumedWidthMm / 25.4 / Math.min(image.getWidth(), image.getHeight());
+        if (scale >= 0.95) {
+            return image;
+        }
+        // Halve first: a single bilinear step over a large factor skips pixels and aliases text
+        BufferedImage current = image;
+        while (scale < 0.5) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+            scale *= 2;
+        }
+        return resize(current, (int) Math.round(current.getWidth() * scale),
+                (int) Math.round(current.getHeight() * scale));
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? BufferedImage.TYPE_BYTE_GRAY
+                : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(Math.max(1, width), Math.max(1, height), type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, resized.getWidth(), resized.getHeight(), null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * Keeps the band of mostly bright rows and columns, i.e. the paper, with a small margin.
+     * Scans and screenshots that are all paper are returned unchanged.
+     */
+    static BufferedImage crop(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] pixels = pixels(gray);
+        int threshold = otsuThreshold(pixels);
+
+        int[] paperPerColumn = new int[width];
+        int[] paperPerRow = new int[height];
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((pixels[row + x] & 0xFF) > threshold) {
+                    paperPerColumn[x]++;
+                    paperPerRow[y]++;
+                }
+            }
+        }
+        int[] columns = brightBand(paperPerColumn);
+        int[] rows = brightBand(paperPerRow);
+        if (columns == null || rows == null) {
+            return gray;
+        }
+        int marginX = width / 100;
+        int marginY = height / 100;
+        int left = Math.max(0, columns[0] - marginX);
+        int right = Math.min(width, columns[1] + marginX);
+        int top = Math.max(0, rows[0] - marginY);
+        int bottom = Math.min(height, rows[1] + marginY);
+        if ((long) (right - left) * (bottom - top) > 0.9 * width * height) {
+            return gray;
+        }
+        return copy(gray.getSubimage(left, top, right - left, bottom - top));
+    }
+
+    /**
+     * First and last index, as [start, end), whose count reaches half the maximum. Text lines
+     * thin out the paper in their rows, so interior dips are deliberately ignored.
+     */
+    private static int[] brightBand(int[] counts) {
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        if (max == 0) {
+            return null;
+        }
+        int start = 0;
+        while (counts[start] * 2 < max) {
+            start++;
+        }
+        int end = counts.length;
+        while (counts[end - 1] * 2 < max) {
+            end--;
+        }
+        return new int[]{start, end};
+    }
+
+    /**
+     * Bradley's adaptive threshold: a pixel is ink if it is clearly darker than the mean of the
+     * window around it. Window sums come from an integral image, so the cost is independent of
+     * the window size.
+     */
+    static BufferedImage binarize(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] pixels = pixels(gray);
+        long[] integral = new long[(width + 1) * (height + 1)];
+        for (int y = 0; y < height; y++) {
+            long rowSum = 0;
+            int row = y * width;
+            int integralRow = (y + 1) * (width + 1);
+            for (int x = 0; x < width; x++) {
+                rowSum += pixels[row + x] & 0xFF;
+                integral[integralRow + x + 1] = integral[integralRow - (width + 1) + x + 1] + rowSum;
+            }
+        }
+
+        int half = Math.max(4, Math.min(width, height) / 16);
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] out = pixels(binary);
+        for (int y = 0; y < height; y++) {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(height, y + half + 1);
+            for (int x = 0; x < width; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(width, x + half + 1);
+                long sum = integral[y1 * (width + 1) + x1] - integral[y0 * (width + 1) + x1]
+                        - integral[y1 * (width + 1) + x0] + integral[y0 * (width + 1) + x0];
+                long area = (long) (x1 - x0) * (y1 - y0);
+                // Ink if more than 15% darker than the local mean
+                boolean ink = (pixels[y * width + x] & 0xFF) * area * 100 < sum * 85;
+                out[y * width + x] = (byte) (ink ? 0 : WHITE);
+            }
+        }
+        return binary;
+    }
+
+    /** Rotates text lines back to horizontal, unless they are already within 0.2 degrees. */
+    BufferedImage deskew(BufferedImage gray) {
+        double skew = estimateSkewDegrees(gray);
+        if (Math.abs(skew) < 0.2) {
+            return gray;
+        }
+        log.debug("Deskewing by {} degrees", skew);
+        return rotate(gray, -skew);
+    }
+
+    /**
+     * Finds the angle at which the horizontal projection of dark pixels is most peaked, i.e.
+     * text lines fall into the fewest rows. Coarse search first, then refined around the best.
+     */
+    double estimateSkewDegrees(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] pixels = pixels(gray);
+        int threshold = Math.min(128, otsuThreshold(pixels));
+
+        // Subsample dark pixels, a few hundred thousand are plenty to judge line alignment
+        int step = Math.max(1, (int) Math.sqrt((double) width * height / 200_000));
+        List<int[]> ink = new ArrayList<>();
+        for (int y = 0; y < height; y += step) {
+            for (int x = 0; x < width; x += step) {
+                if ((pixels[y * width + x] & 0xFF) <= threshold) {
+                    ink.add(new int[]{x, y});
+                }
+            }
+        }
+        if (ink.size() < 100) {
+            return 0;
+        }
+
+        double best = 0;
+        double bestScore = projectionScore(ink, 0, height, width);
+        for (double range = maxSkewDegrees, increment = 1.0; increment >= 0.1; range = increment, increment /= 5) {
+            double center = best;
+            for (double angle = center - range; angle <= center + range + 1e-9; angle += increment) {
+                double score = projectionScore(ink, angle, height, width);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = angle;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double projectionScore(List<int[]> ink, double degrees, int height, int width) {
+        double radians = Math.toRadians(degrees);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        int offset = width + 1;
+        int[] bins = new int[height + 2 * offset];
+        for (int[] point : ink) {
+            int bin = (int) Math.round(point[1] * cos - point[0] * sin) + offset;
+            if (bin >= 0 && bin < bins.length) {
+                bins[bin]++;
+            }
+        }
+        double score = 0;
+        for (int count : bins) {
+            score += (double) count * count;
+        }
+        return score;
+    }
+
+    private static BufferedImage rotate(BufferedImage gray, double degrees) {
+        BufferedImage rotated = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            graphics.setColor(java.awt.Color.WHITE);
+            graphics.fillRect(0, 0, rotated.getWidth(), rotated.getHeight());
+            AffineTransform transform = AffineTransform.getRotateInstance(
+                    Math.toRadians(degrees), gray.getWidth() / 2.0, gray.getHeight() / 2.0);
+            graphics.drawImage(gray, new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR), 0, 0);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+
+    private static int otsuThreshold(byte[] pixels) {
+        long[] histogram = new long[256];
+        for (byte pixel : pixels) {
+            histogram[pixel & 0xFF]++;
+        }
+        long total = pixels.length;
+        double sumAll = 0;
+        for (int i = 0; i < 256; i++) {
+            sumAll += (double) i * histogram[i];
+        }
+        double sumBackground = 0;
+        long weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = 127;
+        for (int i = 0; i < 256; i++) {
+            weightBackground += histogram[i];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (double) i * histogram[i];
+            double meanBackground = sumBackground / weightBackground;
+            double meanForeground = (sumAll - sumBackground) / weightForeground;
+            double variance = (double) weightBackground * weightForeground
+                    * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = i;
+            }
+        }
+        return threshold;
+    }
+
+    private static byte[] pixels(BufferedImage gray) {
+        if (gray.getRaster().getDataBuffer() instanceof java.awt.image.DataBufferByte buffer
+                && gray.getRaster().getParent() == null) {
+            return buffer.getData();
+        }
+        return pixels(copy(gray));
+    }
+
+    private static BufferedImage copy(BufferedImage gray) {
+        BufferedImage copy = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            graphics.drawImage(gray, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return copy;
+    }
+}
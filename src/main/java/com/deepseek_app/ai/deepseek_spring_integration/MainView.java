@@ -1,53 +1,28 @@
 package com.deepseek_app.ai.deepseek_spring_integration;
 
-import com.vaadin.flow.component.Component;
-import com.vaadin.flow.component.HasComponents;
 import com.vaadin.flow.component.Text;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.H3;
 import com.vaadin.flow.component.html.Paragraph;
 import com.vaadin.flow.component.html.Image;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.upload.Upload;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
 import com.vaadin.flow.router.Menu;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.Command;
 import com.vaadin.flow.server.StreamResource;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.http.util.EntityUtils;
-import org.json.JSONException;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.vaadin.flow.server.VaadinSession;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
-import org.springframework.core.env.Environment;
-import net.sourceforge.tess4j.*;
 import java.io.*;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.Base64;
+import java.time.Instant;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.springframework.security.core.parameters.P;
-import org.springframework.web.multipart.MultipartFile;
+import java.util.concurrent.RejectedExecutionException;
 
 @Route("")
 @PageTitle("Receipt")
@@ -57,403 +32,161 @@ public class MainView extends VerticalLayout {
     public record LineItem(String name, int quantity, BigDecimal price) {}
 
     public record Receipt(String merchant, BigDecimal total, List<LineItem> lineItems) {}
-    @Autowired
-    private Environment env;
-
-    private Component previousPhoto;
-    private Paragraph photoName;
-
-    @Value("${springai}")
-    private String apiKey;
-
-    public String imageUrl;
-    @Bean
-    public CloseableHttpClient httpClient() {
-        return HttpClients.createDefault();
-    }
-
 
-    public MainView(ChatClient.Builder builder) {
-        var client = builder.build();
-        var buffer = new MemoryBuffer();
-        var upload = new Upload(buffer);
-        var output = new Div();
+    private final OcrJobService ocrJobService;
+    private final ReceiptStore receiptStore;
+    private final ReceiptPreviewStore previewStore;
+    private final ReceiptHistory history;
+    private final Paragraph jobStatus = new Paragraph();
+    // One set of components, updated in place for every receipt shown
+    private final Paragraph photoName = new Paragraph();
+    private final Image preview = new Image();
+    private final Paragraph previewSummary = new Paragraph();
+    private final Paragraph merchant = new Paragraph();
+    private final Paragraph total = new Paragraph();
+    private final Grid<LineItem> lineItems = new Grid<>(LineItem.class);
+    private final Div details = new Div(new H3("Receipt details"), merchant, total, lineItems);
+    private final Grid<ReceiptHistory.Entry> historyGrid = new Grid<>(ReceiptHistory.Entry.class, false);
+
+    public MainView(OcrJobService ocrJobService, UploadSpool uploadSpool, ReceiptStore receiptStore,
+                    ReceiptPreviewStore previewStore,
+                    @Value("${ui.history.max-entries:50}") int maxHistoryEntries) {
+        this.ocrJobService = ocrJobService;
+        this.receiptStore = receiptStore;
+        this.previewStore = previewStore;
+        this.history = ReceiptHistory.forSession(VaadinSession.getCurrent(), maxHistoryEntries);
+        var receiver = uploadSpool.newReceiver();
+        var upload = new Upload(receiver);
+
+        preview.setMaxWidth("100%");
+        preview.setVisible(false);
+        details.setVisible(false);
+        historyGrid.addColumn(ReceiptHistory.Entry::fileName).setHeader("File");
+        historyGrid.addColumn(ReceiptHistory.Entry::merchant).setHeader("Merchant");
+        historyGrid.addColumn(ReceiptHistory.Entry::total).setHeader("Total");
+        historyGrid.addColumn(ReceiptHistory.Entry::lineItemCount).setHeader("Items");
+        historyGrid.addColumn(ReceiptHistory.Entry::processedAt).setHeader("Processed");
+        // Rows are fetched page by page from the bounded session history, the grid keeps no copy
+        historyGrid.setItems(query -> history.fetch(query.getOffset(), query.getLimit()).stream(),
+                query -> history.size());
+        historyGrid.asSingleSelect().addValueChangeListener(e -> {
+            if (e.getValue() != null) {
+                open(e.getValue());
+            }
+        });
 
-        Text instructions = new Text("Upload an image of a receipt. The AI will extract the details and show them below.");
-        add(instructions, upload, output);
+        Text instructions = new Text("Upload an image, PDF or TIFF of a receipt. The AI will extract the details and show them below.");
+        add(instructions, upload, jobStatus, photoName, preview, previewSummary, details,
+                new H3("History"), historyGrid);
 
-        upload.setAcceptedFileTypes("image/*");
+        // Multi-page PDFs and TIFFs are split into pages and recognised in parallel
+        upload.setAcceptedFileTypes("image/*", "application/pdf", ".pdf", ".tif", ".tiff");
+        upload.setMaxFileSize((int) Math.min(uploadSpool.getMaxBytes(), Integer.MAX_VALUE));
         upload.addSucceededListener(e -> {
+            // The file was written once while it was received; preview and OCR both read it
+            SpooledUpload spooled = receiver.take();
+            if (spooled == null) {
+                return;
+            }
             try {
-                InputStream inputStream = buffer.getInputStream();
-                byte[] bytes = IOUtils.toByteArray(inputStream);
-
-                // Save the file to the server
-                File targetFile = new File(getAppPath() + e.getFileName());
-                FileUtils.copyInputStreamToFile(new ByteArrayInputStream(bytes), targetFile);
-
-                // Display the uploaded image
-                Component component = createComponent(e.getMIMEType(), e.getFileName(), bytes);
-                showOutput(e.getFileName(), component, output);
-
-                // Call the modified singleFileUpload method
-                String ocrText = singleFileUpload(buffer, e.getFileName());
-                System.out.println("OCR Text: " + ocrText);
-                Receipt receipt = parseReceiptFromOCR(ocrText);
-
-                showReceipt(receipt);
-                Paragraph out = new Paragraph();
-                out.setText(ocrText);
-                // add(out);
-                //analyzeImage(targetFile, buffer);
-            } catch (Exception ex) {
-                System.out.println(ex.getMessage());
+                // The preview is a copy served by hash, the spool file goes away with the job
+                previewStore.put(spooled);
+                showPreview(spooled.getSha256(), e.getFileName(), spooled.getMimeType());
+
+                // OCR and parsing run on the job pipeline, the result is pushed back to this UI
+                OcrJob job = ocrJobService.submit(spooled, new UiOcrJobListener(UI.getCurrent(), spooled.getSha256()));
+                jobStatus.setText("Job " + job.getId() + ": " + job.getStatus());
+            } catch (RejectedExecutionException ex) {
+                Notification.show("Too many receipts are being processed, please try again in a moment.");
+            } finally {
+                spooled.release();
             }
         });
+        upload.addFailedListener(e -> receiver.discard());
+        addDetachListener(e -> receiver.discard());
     }
 
+    private class UiOcrJobListener implements OcrJobListener {
 
+        private final UI ui;
+        private final String imageHash;
 
-    private void showReceipt(Receipt receipt) {
-        var items = new Grid<>(LineItem.class);
-        List<LineItem> list =  receipt.lineItems;
-        items.setItems(receipt.lineItems());
-
-        add(
-                new H3("Receipt details"),
-                new Paragraph("Merchant: " + receipt.merchant()),
-                new Paragraph("Total: " + receipt.total()),
-                items
-        );
-    }
-
-    private Component createComponent(String mimeType, String fileName, byte[] bytes) {
-        if (mimeType.startsWith("image")) {
-            Image image = new Image();
-            image.setMaxWidth("100%");
-            image.setSrc(new StreamResource(fileName, () -> new ByteArrayInputStream(bytes)));
-            return image;
-        } else {
-            Div content = new Div();
-            String text = String.format(
-                    "Mime type: '%s'\nSHA-256 hash: '%s'",
-                    mimeType,
-                    generateSHA256Hash(bytes)
-            );
-            content.setText(text);
-            return content;
-        }
-    }
-
-    private String generateSHA256Hash(byte[] data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(data);
-            return bytesToHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not found", e);
-        }
-    }
-
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
-    }
-
-    private void showOutput(String text, Component content, HasComponents outputContainer) {
-        if (photoName != null) {
-            outputContainer.remove(photoName);
-        }
-        if (previousPhoto != null) {
-            outputContainer.remove(previousPhoto);
+        UiOcrJobListener(UI ui, String imageHash) {
+            this.ui = ui;
+            this.imageHash = imageHash;
         }
-        photoName = new Paragraph(text);
-        outputContainer.add(photoName);
-        previousPhoto = content;
-        outputContainer.add(previousPhoto);
-    }
 
-    private String getAppPath() {
-        String path = env.getProperty("spring.servlet.multipart.location");
-        if (path == null) {
-            throw new IllegalStateException("spring.servlet.multipart.location property is not set.");
+        @Override
+        public void onProgress(OcrJob job) {
+            push(() -> jobStatus.setText("Job " + job.getId() + ": " + job.getStatus()));
         }
-        return path;
-    }
-
-    public static String getFlowerImage() throws Exception {
-        // Assuming the image is in the same directory as the Java file
-        Path imagePath = Paths.get("src/receipt.jpg");
-        byte[] imageBuffer = Files.readAllBytes(imagePath);
-        String base64Image = Base64.getEncoder().encodeToString(imageBuffer);
-        return "data:image/jpeg;base64," + base64Image;
-    }
-
-    public void analyzeImage(File targetFile,MemoryBuffer buffer) throws JSONException {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            ObjectNode payload = mapper.createObjectNode();
-
-            // Create the messages array
-            ArrayNode messages = mapper.createArrayNode();
-            ObjectNode message = mapper.createObjectNode();
-            message.put("role", "user");
 
-            // Create the content array
-            ArrayNode content = mapper.createArrayNode();
-            content.add(mapper.createObjectNode()
-                    .put("type", "text")
-                    .put("text", "Please read the attached receipt and return the value in provided receipt record java to json format"));
-            content.add(mapper.createObjectNode()
-                    .put("type", "image_url")
-                    .set("image_url", mapper.createObjectNode()
-                            .put("url", "data:image/jpeg;base64," + getFlowerImage())));
-            message.set("content", content);
-            messages.add(message);
-
-            // Add fields to the payload
-            payload.put("model", "deepseek/deepseek-r1:free");
-            payload.set("messages", messages);
-            payload.put("max_tokens", 1000);
-
-            // Print the payload
-            System.out.println("Request Payload: " + payload.toPrettyString());
-
-            // Create the HTTP request
-            HttpPost request = new HttpPost("https://openrouter.ai/api/v1/chat/completions");
-            request.setEntity(new StringEntity(payload.toString()));
-            request.addHeader("Content-Type", "application/json");
-            request.addHeader("Authorization", "Bearer " + apiKey); // Replace with your API key
-
-            // Execute the request
-            try (CloseableHttpClient client = HttpClients.createDefault()) {
-                try (CloseableHttpResponse response = client.execute(request)) {
-                    String responseBody = EntityUtils.toString(response.getEntity());
-                    System.out.println("Response Body: " + responseBody);
-
-                    // Parse the response
-                    ObjectNode responseJson = (ObjectNode) mapper.readTree(responseBody);
-                    String ocrText = responseJson.path("choices").get(0).path("message").path("content").asText();
-
-                    // Map the OCR text to the Receipt object
-                    Receipt receipt = parseReceiptFromOCR(ocrText);
-
-                    showReceipt(receipt);
-                }
-
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        @Override
+        public void onCompleted(OcrJob job, String ocrText, Receipt receipt) {
+            push(() -> {
+                jobStatus.setText("Job " + job.getId() + ": " + job.getStatus());
+                history.add(new ReceiptHistory.Entry(imageHash, job.getFileName(), receipt.merchant(),
+                        receipt.total(), receipt.lineItems().size(), Instant.now()));
+                historyGrid.getDataProvider().refreshAll();
+                showReceipt(receipt);
+            });
         }
-    }
-
-    private Receipt parseReceiptFromOCR(String ocrText) {
-        // Implement logic to parse the OCR text and extract merchant, total, and line items
-        // Example:
-        String merchant = extractMerchant(ocrText);
-        BigDecimal total = extractTotal(ocrText);
-        List<LineItem> lineItems = extractLineItems(ocrText);
-        return new Receipt(merchant, total, lineItems);
-    }
 
-    private String extractMerchant(String ocrText) {
-        String[] patterns = {"Merchant", "Store", "Vendor", "Market", "Receipt from","MARKET"};
-        for (String pattern : patterns) {
-            int index = ocrText.indexOf(pattern);
-            if (index != -1) {
-                String merchantLine = ocrText.substring(index + pattern.length()).trim();
-                // Extract the entire line as the merchant name
-                return merchantLine.split("\n")[0].trim();
-            }
+        @Override
+        public void onFailed(OcrJob job, Exception error) {
+            push(() -> jobStatus.setText("Job " + job.getId() + " failed: " + error.getMessage()));
         }
-        return "Unknown Merchant";
-    }
 
-    private BigDecimal extractTotal(String ocrText) {
-        String[] patterns = {"Subtotal:", "Net Sales:", "Amount Due:", "Grand Total:", "Net Sales:", "Tax:", "Total :"};
-        for (String pattern : patterns) {
-            int index = ocrText.toLowerCase().indexOf(pattern.toLowerCase());
-            if (index != -1) {
-                String totalLine = ocrText.substring(index + pattern.length()).trim();
-                // Use a regular expression to find the numeric value (including commas)
-                java.util.regex.Pattern amountPattern = java.util.regex.Pattern.compile("[\\d,]+(?:\\.\\d{2})?");
-                java.util.regex.Matcher matcher = amountPattern.matcher(totalLine);
-                if (matcher.find()) {
-                    String amount = matcher.group().replace(",", ""); // Remove commas
-                    return new BigDecimal(amount);
-                }
+        private void push(Command command) {
+            try {
+                ui.access(command);
+            } catch (UIDetachedException e) {
+                // The user navigated away or closed the tab, nobody is waiting for the result
             }
         }
-        throw new IllegalArgumentException("Total amount not found in OCR text");
     }
 
-    private List<LineItem> extractLineItems(String ocrText) {
-        List<LineItem> lineItems = new ArrayList<>();
-        String[] lines = ocrText.split("\n");
-
-        for (String line : lines) {
-            if (line.matches(".*\\$?\\d+(\\.\\d{2})?.*")) {
-                // Extract the item name and price
-                String[] parts = line.split("\\$");
-                if (parts.length >= 2) {
-                    String itemPart = parts[0].trim();
-                    // Extract the first word with only uppercase letters
-                    String firstAllUppercaseWord = extractFirstUppercaseWordsUntilSpace(itemPart);
-
-                    if (firstAllUppercaseWord != null  && firstAllUppercaseWord.length() > 0) {
-                        System.out.println("ITEM PART : " + firstAllUppercaseWord);
-                    } else {
-                        firstAllUppercaseWord = extractLineWithoutSpecialChars(itemPart);
-                        System.out.println("ITEM PART CREATE: " + firstAllUppercaseWord);
-                    }
-
-                    String pricePart = "$" + parts[1].trim();
-                    int quantity = 1; // Default quantity
-
-                    if (firstAllUppercaseWord != null) {
-
-
-                        // Check if the line starts with "Qty" (case-insensitive)
-                        if (itemPart.toLowerCase().startsWith("qty")) {
-                            // Extract the quantity
-                            String[] qtyParts = itemPart.split("\\s+");
-                            if (qtyParts.length >= 2) { // Ensure there is a quantity value after "Qty"
-                                try {
-                                    quantity = Integer.parseInt(qtyParts[1]); // Parse the quantity
-                                    System.out.println("QUANTITY FOUND : " + quantity);
-                                } catch (NumberFormatException e) {
-                                    // If quantity parsing fails, default to 1
-                                    System.out.println("QUANTITY PARSING FAILED, USING DEFAULT: 1");
-                                }
-                            }
-                        }
-                    }
-                    if (quantity > 0) {
-                        // Extract the price
-                        java.util.regex.Pattern pricePattern = java.util.regex.Pattern.compile("\\$?([\\d,]+(?:\\.\\d{2})?)");
-                        java.util.regex.Matcher matcher = pricePattern.matcher(pricePart);
-                        if (matcher.find()) {
-                            String priceStr = matcher.group(1).replace(",", "");
-                            BigDecimal price = new BigDecimal(priceStr);
-                            System.out.println("PRICE FOUND : " + price);
-                            lineItems.add(new LineItem(firstAllUppercaseWord, quantity, price));
-                        } else {
-                            System.out.println("NO PRICE FOUND");
-                        }
-                    }
+    private void showReceipt(Receipt receipt) {
+        merchant.setText("Merchant: " + receipt.merchant());
+        total.setText("Total: " + receipt.total());
+        lineItems.setItems(receipt.lineItems());
+        details.setVisible(true);
+    }
+
+    /** Shows an earlier receipt; its line items come from the store, not from session memory. */
+    private void open(ReceiptHistory.Entry entry) {
+        showPreview(entry.id(), entry.fileName(), null);
+        StoredReceipt stored = receiptStore.find(entry.id());
+        showReceipt(stored != null
+                ? new Receipt(stored.merchant(), stored.total(), stored.lineItems())
+                // Not written yet or the store was reset, the summary is all there is
+                : new Receipt(entry.merchant(), entry.total(), List.of()));
+    }
+
+    private void showPreview(String imageHash, String fileName, String mimeType) {
+        photoName.setText(fileName);
+        boolean hasPreview = previewStore.contains(imageHash);
+        if (hasPreview) {
+            // Read from disk when the browser asks for it; replacing the source drops the old resource
+            preview.setSrc(new StreamResource(fileName, () -> {
+                try {
+                    return previewStore.open(imageHash);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }
-        }
-        return lineItems;
-    }
-    public static String extractLineWithoutSpecialChars(String input) {
-        // Define the regex pattern to match alphanumeric characters and spaces
-        String regex = "[a-zA-Z\\s]+";
-
-        // Compile the pattern
-        Pattern pattern = Pattern.compile(regex);
-
-        // Create a matcher for the input string
-        Matcher matcher = pattern.matcher(input);
-
-        // Find the first match
-        if (matcher.find()) {
-            return matcher.group();
-        }
-
-        // Return an empty string if no match is found
-        return "";
-    }
-    public static String extractFirstWord(String input) {
-        // Define the regex pattern to match a word starting with an uppercase letter
-        // followed by lowercase letters
-        String regex = "\\b[A-Z][a-z]*\\b";
-
-        // Compile the pattern
-        Pattern pattern = Pattern.compile(regex);
-
-        // Create a matcher for the input string
-        Matcher matcher = pattern.matcher(input);
-
-        // Find the first match
-        if (matcher.find()) {
-            return matcher.group();
-        }
-
-        // Return null if no match is found
-        return null;
-    }
-    public static String extractFirstUppercaseWordsUntilSpace(String input) {
-        // Split the input string into words based on whitespace
-        String[] words = input.split("\\s+");
-        StringBuilder result = new StringBuilder();
-
-        // Iterate through each word
-        for (String word : words) {
-            // Check if the word contains only uppercase letters
-            if (isAllUppercase(word)) {
-                // Append the word to the result with a space
-                result.append(word).append(" ");
-            } else {
-                // Stop when a word does not contain only uppercase letters
-                break;
-            }
-        }
-
-        // Remove the trailing space (if any) and return the result
-        return result.toString().trim();
-    }
-
-    public static boolean isAllUppercase(String word) {
-        // Iterate through each character in the word
-        for (char ch : word.toCharArray()) {
-            // If any character is not an uppercase letter, return false
-            if (!Character.isUpperCase(ch)) {
-                return false;
-            }
+            }));
+            preview.setAlt(fileName);
+        } else {
+            previewSummary.setText(mimeType != null
+                    ? String.format("Mime type: '%s'\nSHA-256 hash: '%s'", mimeType, imageHash)
+                    : String.format("SHA-256 hash: '%s'", imageHash));
         }
-        return true; // All characters are uppercase
+        preview.setVisible(hasPreview);
+        previewSummary.setVisible(!hasPreview);
     }
-    public String singleFileUpload(MemoryBuffer buffer, String fileName) throws IOException, TesseractException {
-        InputStream inputStream = buffer.getInputStream();
-        byte[] bytes = IOUtils.toByteArray(inputStream);
-
-        // Save the file to the server
-        Path path = Paths.get("E://upload/" + fileName);
-        Files.write(path, bytes);
-
-        File convFile = new File(fileName);
-        FileUtils.copyInputStreamToFile(new ByteArrayInputStream(bytes), convFile);
-
-        Tesseract tesseract = new Tesseract();
-        tesseract.setDatapath("E:\\Program Files\\Tesseract-OCR\\tessdata");
-        String text = tesseract.doOCR(convFile);
-        tesseract.setLanguage("eng");
-
-        System.out.println(text);
-        System.out.println(convFile);
 
-        return text;
-    }
     public String result() {
         return "result";
     }
-    private void run(MultipartFile file) {
-        // Implement the logic you want to execute with the file
-        System.out.println("Running additional operations on file: " + file.getOriginalFilename());
-    }
-    public static File convert(MultipartFile file) throws IOException {
-        File convFile = new File(file.getOriginalFilename());
-
-        convFile.createNewFile();
-        FileOutputStream fos = new FileOutputStream(convFile);
-        fos.write(file.getBytes());
-
-        fos.close();
-        return convFile;
-    }
 
 }
\ No newline at end of file
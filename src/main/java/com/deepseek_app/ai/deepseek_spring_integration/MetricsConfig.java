@@ -0,0 +1,146 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saturation gauges for the shared resources: the outbound connection pool and traffic governor,
+ * the provider statistics the router ranks by, the OCR job queue, the Tesseract engines, the two
+ * caches and the receipt store's write queue.
+ * Latency timers live next to the code they measure.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder deepSeekConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager,
+                                                     PoolingNHttpClientConnectionManager asyncConnectionManager) {
+        return registry -> {
+            Gauge.builder("deepseek.http.pool.leased", connectionManager, pool -> pool.getTotalStats().getLeased())
+                    .description("Connections currently in use").register(registry);
+            Gauge.builder("deepseek.http.pool.available", connectionManager, pool -> pool.getTotalStats().getAvailable())
+                    .description("Idle connections kept alive").register(registry);
+            Gauge.builder("deepseek.http.pool.pending", connectionManager, pool -> pool.getTotalStats().getPending())
+                    .description("Requests waiting for a connection").register(registry);
+            Gauge.builder("deepseek.http.pool.max", connectionManager, pool -> pool.getTotalStats().getMax())
+                    .register(registry);
+            Gauge.builder("deepseek.http.async.pool.leased", asyncConnectionManager,
+                            pool -> pool.getTotalStats().getLeased())
+                    .description("Connections of the non-blocking client currently in use").register(registry);
+            Gauge.builder("deepseek.http.async.pool.pending", asyncConnectionManager,
+                            pool -> pool.getTotalStats().getPending())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder deepSeekGovernorMetrics(DeepSeekTrafficGovernor governor) {
+        return registry -> {
+            Gauge.builder("deepseek.governor.concurrency.limit", governor, DeepSeekTrafficGovernor::getConcurrencyLimit)
+                    .description("Adaptive cap on DeepSeek calls in flight").register(registry);
+            Gauge.builder("deepseek.governor.concurrency.in_flight", governor, DeepSeekTrafficGovernor::getInFlight)
+                    .register(registry);
+            Gauge.builder("deepseek.governor.rate.tokens", governor, DeepSeekTrafficGovernor::getAvailableTokens)
+                    .description("Calls that may start right now without waiting").register(registry);
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                Gauge.builder("deepseek.governor.circuit.state", governor,
+                                g -> g.getCircuitState() == state ? 1 : 0)
+                        .tag("state", state.name().toLowerCase(Locale.ROOT)).register(registry);
+            }
+            FunctionCounter.builder("deepseek.governor.circuit.opened", governor,
+                            DeepSeekTrafficGovernor::getCircuitOpenedCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder providerRoutingMetrics(ProviderRouter providerRouter) {
+        return registry -> {
+            for (ChatProvider provider : providerRouter.getProviders()) {
+                for (double quantile : new double[] {0.5, 0.95}) {
+                    TimeGauge.builder("deepseek.routing.latency", provider, TimeUnit.NANOSECONDS, p -> {
+                                long latency = p.getLatencyNanos(quantile);
+                                return latency < 0 ? Double.NaN : latency;
+                            })
+                            .description("Recent answer latency the router ranks providers by")
+                            .tags("provider", provider.getName(), "quantile", String.valueOf(quantile))
+                            .register(registry);
+                }
+                Gauge.builder("deepseek.routing.error_rate", provider, ChatProvider::getErrorRate)
+                        .tag("provider", provider.getName()).register(registry);
+                Gauge.builder("deepseek.routing.ejected", provider, p -> p.isEjected() ? 1 : 0)
+                        .description("1 while the provider's circuit breaker keeps it out of rotation")
+                        .tag("provider", provider.getName()).register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder ocrMetrics(OcrJobService ocrJobService, TesseractPool tesseractPool,
+                                  DocumentOcrService documentOcrService) {
+        return registry -> {
+            Gauge.builder("ocr.jobs.queued", ocrJobService, OcrJobService::getQueuedCount)
+                    .description("OCR jobs waiting for a worker").register(registry);
+            Gauge.builder("ocr.jobs.running", ocrJobService, OcrJobService::getRunningCount)
+                    .register(registry);
+            Gauge.builder("ocr.jobs.queue.remaining", ocrJobService, OcrJobService::getRemainingQueueCapacity)
+                    .description("Free slots before submissions are rejected").register(registry);
+            Gauge.builder("ocr.tesseract.engines", tesseractPool, TesseractPool::getPoolSize)
+                    .register(registry);
+            Gauge.builder("ocr.tesseract.engines.idle", tesseractPool, TesseractPool::getIdleCount)
+                    .register(registry);
+            Gauge.builder("ocr.document.pages.queued", documentOcrService, DocumentOcrService::getQueuedPages)
+                    .description("Rendered pages waiting for an engine").register(registry);
+            Gauge.builder("ocr.document.memory.available", documentOcrService,
+                            service -> service.getAvailableMemoryKb() * 1024.0)
+                    .baseUnit("bytes").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(DeepSeekResponseCache responseCache, OcrResultCache ocrResultCache) {
+        return registry -> {
+            FunctionCounter.builder("deepseek.cache.requests", responseCache, cache -> cache.getStats().hits())
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("deepseek.cache.requests", responseCache, cache -> cache.getStats().misses())
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("deepseek.cache.requests", responseCache, cache -> cache.getStats().coalesced())
+                    .tag("result", "coalesced").register(registry);
+            Gauge.builder("deepseek.cache.entries", responseCache, cache -> cache.getStats().entries())
+                    .register(registry);
+
+            FunctionCounter.builder("ocr.cache.requests", ocrResultCache, cache -> cache.getStats().memoryHits())
+                    .tag("result", "memory_hit").register(registry);
+            FunctionCounter.builder("ocr.cache.requests", ocrResultCache, cache -> cache.getStats().diskHits())
+                    .tag("result", "disk_hit").register(registry);
+            FunctionCounter.builder("ocr.cache.requests", ocrResultCache, cache -> cache.getStats().misses())
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("ocr.cache.evictions", ocrResultCache, cache -> cache.getStats().evictions())
+                    .register(registry);
+            Gauge.builder("ocr.cache.memory.size", ocrResultCache, cache -> cache.getStats().memoryBytes())
+                    .baseUnit("bytes").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder receiptStoreMetrics(ReceiptStore receiptStore) {
+        return registry -> Gauge.builder("receipt.store.pending", receiptStore, ReceiptStore::getPendingCount)
+                .description("Receipts queued for the next write batch").register(registry);
+    }
+
+    @Bean
+    public MeterBinder conversationMetrics(ConversationService conversationService) {
+        return registry -> Gauge.builder("deepseek.conversations.active", conversationService,
+                        ConversationService::getActiveCount)
+                .description("Conversations held in memory").register(registry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public final class OcrJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+    private volatile OcrJobStatus status = OcrJobStatus.QUEUED;
+
+    OcrJob(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public OcrJobStatus getStatus() {
+        return status;
+    }
+
+    void setStatus(OcrJobStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,15 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+/**
+ * Receives the progress of an {@link OcrJob}. Callbacks run on the OCR worker thread, so UI code
+ * must hand them over with {@code UI.access}.
+ */
+public interface OcrJobListener {
+
+    default void onProgress(OcrJob job) {
+    }
+
+    void onCompleted(OcrJob job, String ocrText, MainView.Receipt receipt);
+
+    void onFailed(OcrJob job, Exception error);
+}
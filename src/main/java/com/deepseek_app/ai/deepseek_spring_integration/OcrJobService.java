@@ -0,0 +1,275 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs receipt OCR and parsing on a dedicated executor with a bounded work queue, so uploads
+ * return immediately and OCR throughput is bounded by cores rather than by servlet threads.
+ * Receipts the parser is unsure about finish once DeepSeek has answered, without holding a worker.
+ */
+@Service
+@Slf4j
+public class OcrJobService {
+
+    public enum SaturationPolicy {
+        /** Fail the submission straight away when the queue is full. */
+        REJECT,
+        /** Wait up to {@code ocr.jobs.submit-timeout-ms} for a free queue slot. */
+        WAIT
+    }
+
+    private final DocumentOcrService documentOcrService;
+    private final OcrResultCache ocrResultCache;
+    private final ReceiptParser receiptParser;
+    private final ReceiptExtractor receiptExtractor;
+    private final ReceiptStore receiptStore;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWaitTimer;
+    private final Timer recognizeTimer;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, OcrJob> activeJobs = new ConcurrentHashMap<>();
+
+    public OcrJobService(TesseractPool tesseractPool,
+                         DocumentOcrService documentOcrService,
+                         OcrResultCache ocrResultCache,
+                         ReceiptParser receiptParser,
+                         ReceiptExtractor receiptExtractor,
+                         ReceiptStore receiptStore,
+                         MeterRegistry meterRegistry,
+                         @Value("${ocr.jobs.threads:0}") int threads,
+                         @Value("${ocr.jobs.queue-capacity:100}") int queueCapacity,
+                         @Value("${ocr.jobs.virtual-threads:false}") boolean virtualThreads,
+                         @Value("${ocr.jobs.saturation-policy:REJECT}") SaturationPolicy saturationPolicy,
+                         @Value("${ocr.jobs.submit-timeout-ms:5000}") long submitTimeoutMs) {
+        this.documentOcrService = documentOcrService;
+        this.ocrResultCache = ocrResultCache;
+        this.receiptParser = receiptParser;
+        this.receiptExtractor = receiptExtractor;
+        this.receiptStore = receiptStore;
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimer = Timer.builder("ocr.jobs.wait")
+                .description("Time a job spent queued before a worker picked it up")
+                .register(meterRegistry);
+        this.recognizeTimer = Timer.builder("ocr.recognize")
+                .description("Tesseract recognition time per upload, all pages of a document together")
+                .register(meterRegistry);
+        // More workers than engines would only queue up inside the engine pool
+        int workers = threads > 0 ? threads : tesseractPool.getPoolSize();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(virtualThreads),
+                rejectionHandler(saturationPolicy, submitTimeoutMs));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues OCR for the upload. The job holds its own reference to the upload and releases it
+     * when it finishes, so the caller may release its reference straight away.
+     */
+    public OcrJob submit(SpooledUpload upload, OcrJobListener listener) {
+        OcrJob job = new OcrJob(upload.getFileName());
+        activeJobs.put(job.getId(), job);
+        upload.retain();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                run(job, upload, listener);
+            });
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getId());
+            upload.release();
+            meterRegistry.counter("ocr.jobs.rejected").increment();
+            throw e;
+        }
+        log.debug("Queued OCR job {} for {}", job.getId(), upload.getFileName());
+        return job;
+    }
+
+    public OcrJob findJob(String jobId) {
+        return activeJobs.get(jobId);
+    }
+
+    public Collection<OcrJob> getActiveJobs() {
+        return Collections.unmodifiableCollection(activeJobs.values());
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getRemainingQueueCapacity() {
+        return executor.getQueue().remainingCapacity();
+    }
+
+    private void run(OcrJob job, SpooledUpload upload, OcrJobListener listener) {
+        Timer.Sample jobSample = Timer.start(meterRegistry);
+        String source = "ocr";
+        boolean finished = true;
+        try {
+            String imageHash = upload.getSha256();
+            OcrResultCache.Entry cached = ocrResultCache.get(imageHash).orElse(null);
+            if (cached != null && cached.receipt() != null) {
+                source = "cache";
+                complete(job, imageHash, cached.ocrText(), cached.receipt(), listener);
+                return;
+            }
+            String ocrText;
+            if (cached != null) {
+                source = "cached_text";
+                ocrText = cached.ocrText();
+            } else {
+                updateStatus(job, OcrJobStatus.RUNNING_OCR, listener);
+                ocrText = recognizeTimer.recordCallable(() -> documentOcrService.recognize(upload.getPath()));
+            }
+            updateStatus(job, OcrJobStatus.PARSING, listener);
+            String jobSource = source;
+            // A receipt escalated to DeepSeek completes on another thread; this worker moves on to the next upload
+            CompletableFuture<ReceiptExtractor.Extraction> extraction = extract(ocrText);
+            finished = false;
+            extraction.whenComplete((extracted, error) -> {
+                try {
+                    if (error != null) {
+                        // Keep the text so a retry of the same image skips Tesseract
+                        if (cached == null) {
+                            ocrResultCache.put(imageHash, ocrText, null);
+                        }
+                        fail(job, unwrap(error), listener);
+                    } else {
+                        // A fallback after DeepSeek failed keeps only the text, so the image is escalated again next time
+                        ocrResultCache.put(imageHash, ocrText, extracted.fallback() ? null : extracted.receipt());
+                        complete(job, imageHash, ocrText, extracted.receipt(), listener);
+                    }
+                } catch (Exception e) {
+                    fail(job, e, listener);
+                } finally {
+                    finish(job, upload, jobSample, jobSource);
+                }
+            });
+        } catch (Exception e) {
+            fail(job, e, listener);
+        } catch (Error e) {
+            // E.g. the native Tesseract library is missing; whoever waits on the job must still hear of it
+            log.error("OCR job {} for {} failed", job.getId(), job.getFileName(), e);
+            job.setStatus(OcrJobStatus.FAILED);
+            listener.onFailed(job, new IllegalStateException(e.toString(), e));
+            throw e;
+        } finally {
+            if (finished) {
+                finish(job, upload, jobSample, source);
+            }
+        }
+    }
+
+    private void complete(OcrJob job, String imageHash, String ocrText, MainView.Receipt receipt,
+                          OcrJobListener listener) {
+        store(imageHash, job.getFileName(), ocrText, receipt);
+        job.setStatus(OcrJobStatus.COMPLETED);
+        listener.onCompleted(job, ocrText, receipt);
+    }
+
+    private void fail(OcrJob job, Exception error, OcrJobListener listener) {
+        log.warn("OCR job {} for {} failed: {}", job.getId(), job.getFileName(), error.getMessage());
+        job.setStatus(OcrJobStatus.FAILED);
+        listener.onFailed(job, error);
+    }
+
+    private void finish(OcrJob job, SpooledUpload upload, Timer.Sample jobSample, String source) {
+        activeJobs.remove(job.getId());
+        upload.release();
+        jobSample.stop(Timer.builder("ocr.jobs.duration")
+                .description("Upload to result, including OCR and parsing")
+                .tag("source", source)
+                .tag("status", job.getStatus().name())
+                .register(meterRegistry));
+    }
+
+    private void store(String imageHash, String fileName, String ocrText, MainView.Receipt receipt) {
+        LocalDate printed = receiptParser.parseDate(ocrText);
+        receiptStore.add(new StoredReceipt(imageHash, fileName, receipt.merchant(),
+                printed != null ? printed : LocalDate.now(), receipt.total(), receipt.lineItems(), Instant.now()));
+    }
+
+    private CompletableFuture<ReceiptExtractor.Extraction> extract(String ocrText) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return receiptExtractor.extract(ocrText).whenComplete((extracted, error) ->
+                sample.stop(Timer.builder("receipt.parse")
+                        .description("Time to turn OCR text into a receipt, including any DeepSeek escalation")
+                        .tag("outcome", error == null ? "success" : "failure")
+                        .register(meterRegistry)));
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception exception ? exception : new IllegalStateException(cause.toString(), cause);
+    }
+
+    private void updateStatus(OcrJob job, OcrJobStatus status, OcrJobListener listener) {
+        job.setStatus(status);
+        listener.onProgress(job);
+    }
+
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                return new VirtualThreadTaskExecutor("ocr-job-").getVirtualThreadFactory();
+            } catch (UnsupportedOperationException e) {
+                log.warn("Virtual threads need JDK 21+, falling back to platform OCR threads");
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "ocr-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(SaturationPolicy policy, long submitTimeoutMs) {
+        if (policy == SaturationPolicy.REJECT) {
+            return new ThreadPoolExecutor.AbortPolicy();
+        }
+        return (runnable, executor) -> {
+            try {
+                if (executor.isShutdown()
+                        || !executor.getQueue().offer(runnable, submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new RejectedExecutionException("OCR queue is full");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for the OCR queue", e);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,9 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+public enum OcrJobStatus {
+    QUEUED,
+    RUNNING_OCR,
+    PARSING,
+    COMPLETED,
+    FAILED
+}
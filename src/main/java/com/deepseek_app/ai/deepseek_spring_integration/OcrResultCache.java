@@ -0,0 +1,244 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * OCR text and parsed receipt keyed by the SHA-256 of the uploaded image. A byte-bounded LRU
+ * tier sits in front of an optional on-disk tier that survives restarts. The disk tier is wiped
+ * whenever the OCR or extraction configuration fingerprint changes, since old text or receipts
+ * may no longer match.
+ */
+@Component
+@Slf4j
+public class OcrResultCache {
+
+    public record Entry(String ocrText, MainView.Receipt receipt) {}
+
+    public record Stats(long memoryHits, long diskHits, long misses, long evictions,
+                        int memoryEntries, long memoryBytes) {
+
+        public double hitRatio() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+        }
+    }
+
+    private static final String FINGERPRINT_FILE = "engine.fingerprint";
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int LINE_ITEM_OVERHEAD_BYTES = 96;
+
+    private final DocumentOcrService documentOcrService;
+    private final ReceiptExtractor receiptExtractor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean enabled;
+    private final long maxMemoryBytes;
+    private final boolean diskEnabled;
+    private final Path diskDirectory;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public OcrResultCache(DocumentOcrService documentOcrService,
+                          ReceiptExtractor receiptExtractor,
+                          @Value("${ocr.cache.enabled:true}") boolean enabled,
+                          @Value("${ocr.cache.max-memory-bytes:67108864}") long maxMemoryBytes,
+                          @Value("${ocr.cache.disk.enabled:false}") boolean diskEnabled,
+                          @Value("${ocr.cache.disk.directory:ocr-cache}") String diskDirectory) {
+        this.documentOcrService = documentOcrService;
+        this.receiptExtractor = receiptExtractor;
+        this.enabled = enabled;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskEnabled = enabled && diskEnabled;
+        this.diskDirectory = Paths.get(diskDirectory);
+    }
+
+    @PostConstruct
+    public void openDiskTier() {
+        if (!diskEnabled) {
+            return;
+        }
+        // The disk tier keeps receipts next to the text, so extraction settings invalidate it too
+        String fingerprint = documentOcrService.getConfigurationFingerprint()
+                + "|" + receiptExtractor.getConfigurationFingerprint();
+        Path fingerprintFile = diskDirectory.resolve(FINGERPRINT_FILE);
+        try {
+            Files.createDirectories(diskDirectory);
+            String stored = Files.exists(fingerprintFile)
+                    ? Files.readString(fingerprintFile, StandardCharsets.UTF_8).trim()
+                    : null;
+            if (!fingerprint.equals(stored)) {
+                if (stored != null) {
+                    log.info("OCR configuration changed, clearing OCR disk cache in {}", diskDirectory);
+                }
+                clearDisk();
+                Files.writeString(fingerprintFile, fingerprint, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            log.warn("Could not open OCR disk cache in {}: {}", diskDirectory, e.getMessage());
+        }
+    }
+
+    public Optional<Entry> get(String imageHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (memory) {
+            Entry entry = memory.get(imageHash);
+            if (entry != null) {
+                memoryHits.incrementAndGet();
+                return Optional.of(entry);
+            }
+        }
+        if (diskEnabled) {
+            Entry entry = readFromDisk(imageHash);
+            if (entry != null) {
+                diskHits.incrementAndGet();
+                putInMemory(imageHash, entry);
+                return Optional.of(entry);
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void put(String imageHash, String ocrText, MainView.Receipt receipt) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(ocrText, receipt);
+        putInMemory(imageHash, entry);
+        if (diskEnabled) {
+            writeToDisk(imageHash, entry);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        if (diskEnabled) {
+            try {
+                clearDisk();
+            } catch (IOException e) {
+                log.warn("Could not clear OCR disk cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (memory) {
+            return new Stats(memoryHits.get(), diskHits.get(), misses.get(), evictions.get(),
+                    memory.size(), memoryBytes);
+        }
+    }
+
+    private void putInMemory(String imageHash, Entry entry) {
+        long weight = weigh(imageHash, entry);
+        if (weight > maxMemoryBytes) {
+            return;
+        }
+        synchronized (memory) {
+            Entry previous = memory.put(imageHash, entry);
+            if (previous != null) {
+                memoryBytes -= weigh(imageHash, previous);
+            }
+            memoryBytes += weight;
+            Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                memoryBytes -= weigh(evicted.getKey(), evicted.getValue());
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long weigh(String imageHash, Entry entry) {
+        long chars = imageHash.length() + entry.ocrText().length();
+        int lineItems = 0;
+        if (entry.receipt() != null) {
+            chars += entry.receipt().merchant() == null ? 0 : entry.receipt().merchant().length();
+            for (MainView.LineItem item : entry.receipt().lineItems()) {
+                chars += item.name() == null ? 0 : item.name().length();
+                lineItems++;
+            }
+        }
+        // Strings are UTF-16 in the worst case
+        return ENTRY_OVERHEAD_BYTES + chars * 2 + (long) lineItems * LINE_ITEM_OVERHEAD_BYTES;
+    }
+
+    private Path diskPath(String imageHash) {
+        // Two-character fan-out keeps directories small
+        return diskDirectory.resolve(imageHash.substring(0, 2)).resolve(imageHash + ".json");
+    }
+
+    private Entry readFromDisk(String imageHash) {
+        try {
+            return objectMapper.readValue(Files.readAllBytes(diskPath(imageHash)), Entry.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Dropping unreadable OCR cache entry {}: {}", imageHash, e.getMessage());
+            try {
+                Files.deleteIfExists(diskPath(imageHash));
+            } catch (IOException ignored) {
+                // Overwritten by the next put anyway
+            }
+            return null;
+        }
+    }
+
+    private void writeToDisk(String imageHash, Entry entry) {
+        Path target = diskPath(imageHash);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), imageHash, ".tmp");
+            Files.write(temp, objectMapper.writeValueAsBytes(entry));
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write OCR cache entry {}: {}", imageHash, e.getMessage());
+        }
+    }
+
+    private void clearDisk() throws IOException {
+        if (!Files.isDirectory(diskDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(diskDirectory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (file.toString().endsWith(".json") || file.toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the chat completion provider for each upstream call: the one with the lowest recent
+ * median latency, weighted by its error rate, among those whose circuit breaker is closed.
+ * Providers without enough answers yet are tried first, and a small share of calls goes to
+ * another provider so the statistics of the ones not chosen stay current.
+ * <p>
+ * With hedging on, a non-blocking call still unanswered after its provider's p95 latency is
+ * sent to the next best provider as well. The first answer wins and the other call is aborted.
+ * Each call the governor admits can thus reach two providers; {@code hedge.max-per-second}
+ * bounds the extra traffic.
+ */
+@Component
+@Slf4j
+public class ProviderRouter {
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T run(ChatProvider provider) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface AsyncCall<T> {
+        /** Starts the call; cancelling the returned future must abort it. */
+        CompletableFuture<T> run(ChatProvider provider);
+    }
+
+    private record Ranked(ChatProvider provider, long score) {
+    }
+
+    private final List<ChatProvider> providers;
+    private final double exploreRatio;
+    private final boolean hedging;
+    private final double hedgeQuantile;
+    private final long hedgeMinDelayNanos;
+    private final TokenBucket hedgeBudget;
+    private final MeterRegistry meterRegistry;
+    // Only fires hedges; the calls themselves run on the HTTP clients
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deepseek-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProviderRouter(DeepSeekRequestFactory deepSeekRequestFactory, MeterRegistry meterRegistry,
+                          @Value("${deepseek.openrouter.enabled:false}") boolean openRouterEnabled,
+                          @Value("${deepseek.openrouter.url:https://openrouter.ai/api/v1/chat/completions}") String openRouterUrl,
+                          @Value("${deepseek.openrouter.api-key:${springai:}}") String openRouterKey,
+                          @Value("${deepseek.openrouter.model:deepseek/deepseek-chat}") String openRouterModel,
+                          @Value("${deepseek.routing.window:100}") int window,
+                          @Value("${deepseek.routing.min-samples:10}") int minSamples,
+                          @Value("${deepseek.routing.explore-ratio:0.05}") double exploreRatio,
+                          @Value("${deepseek.routing.circuit.window:20}") int circuitWindow,
+                          @Value("${deepseek.routing.circuit.failure-rate:0.5}") double circuitFailureRate,
+                          @Value("${deepseek.routing.circuit.open-ms:30000}") long circuitOpenMs,
+                          @Value("${deepseek.routing.hedge.enabled:false}") boolean hedging,
+                          @Value("${deepseek.routing.hedge.quantile:0.95}") double hedgeQuantile,
+                          @Value("${deepseek.routing.hedge.min-delay-ms:50}") long hedgeMinDelayMs,
+                          @Value("${deepseek.routing.hedge.max-per-second:5}") double hedgesPerSecond) {
+        List<ChatProvider> configured = new ArrayList<>();
+        configured.add(new ChatProvider("deepseek", deepSeekRequestFactory, null, window, minSamples,
+                new CircuitBreaker(circuitWindow, minSamples, circuitFailureRate, Duration.ofMillis(circuitOpenMs), 1)));
+        if (openRouterEnabled && !openRouterKey.isBlank()) {
+            configured.add(new ChatProvider("openrouter", new DeepSeekRequestFactory(openRouterUrl, openRouterKey),
+                    openRouterModel, window, minSamples,
+                    new CircuitBreaker(circuitWindow, minSamples, circuitFailureRate, Duration.ofMillis(circuitOpenMs), 1)));
+        } else if (openRouterEnabled) {
+            log.warn("OpenRouter is enabled but has no API key, routing everything to DeepSeek");
+        }
+        this.providers = List.copyOf(configured);
+        this.exploreRatio = exploreRatio;
+        this.hedging = hedging && providers.size() > 1;
+        this.hedgeQuantile = hedgeQuantile;
+        this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMs);
+        this.hedgeBudget = new TokenBucket(hedgesPerSecond, (int) Math.ceil(hedgesPerSecond));
+        this.meterRegistry = meterRegistry;
+    }
+
+    public List<ChatProvider> getProviders() {
+        return providers;
+    }
+
+    /** Whether non-blocking calls may be hedged; false with a single provider. */
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /**
+     * Runs a blocking call on the best provider.
+     *
+     * @param timed false for streams, whose duration says more about the answer than the provider
+     * @throws DeepSeekUnavailableException if every provider's circuit breaker refuses the call
+     */
+    public <T> T call(Call<T> call, boolean timed) throws IOException {
+        ChatProvider provider = select();
+        long start = System.nanoTime();
+        try {
+            T result = call.run(provider);
+            provider.onSuccess(timed ? System.nanoTime() - start : -1);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            onFailure(provider, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a call on the best provider, hedged on the next best one if hedging is on. Fails
+     * with {@link DeepSeekUnavailableException} if every provider's circuit breaker refuses it.
+     */
+    public <T> CompletableFuture<T> callAsync(AsyncCall<T> call) {
+        ChatProvider primary;
+        try {
+            primary = select();
+        } catch (DeepSeekUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long hedgeDelayNanos = hedgeDelayNanos(primary);
+        if (hedgeDelayNanos < 0) {
+            return track(primary, call);
+        }
+        return new HedgedCall<>(call, primary).start(hedgeDelayNanos);
+    }
+
+    private ChatProvider select() throws DeepSeekUnavailableException {
+        List<ChatProvider> ranked = rank(null);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (ranked.size() > 1 && random.nextDouble() < exploreRatio) {
+            Collections.swap(ranked, 0, 1 + random.nextInt(ranked.size() - 1));
+        }
+        Duration retryAfter = null;
+        for (ChatProvider provider : ranked) {
+            Duration wait = provider.tryAcquire();
+            if (wait == null) {
+                return provider;
+            }
+            if (retryAfter == null || wait.compareTo(retryAfter) < 0) {
+                retryAfter = wait;
+            }
+        }
+        // Calling anyway would skip the half-open probe limit and report to breakers that never admitted the call
+        throw new DeepSeekUnavailableException("Every provider's circuit breaker is open", retryAfter);
+    }
+
+    /** The next best provider to hedge on, or null if there is none or the hedge budget is spent. */
+    private ChatProvider selectHedge(ChatProvider primary) {
+        if (hedgeBudget.reserve(0) < 0) {
+            return null;
+        }
+        for (ChatProvider provider : rank(primary)) {
+            if (provider.tryAcquire() == null) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    private List<ChatProvider> rank(ChatProvider excluded) {
+        List<Ranked> scored = new ArrayList<>(providers.size());
+        for (ChatProvider provider : providers) {
+            if (provider != excluded) {
+                scored.add(new Ranked(provider, score(provider)));
+            }
+        }
+        // Stable, so ties keep the configured order and DeepSeek goes first
+        scored.sort(Comparator.comparingLong(Ranked::score));
+        List<ChatProvider> ranked = new ArrayList<>(scored.size());
+        for (Ranked entry : scored) {
+            ranked.add(entry.provider());
+        }
+        return ranked;
+    }
+
+    /**
+     * The expected time to an answer if failures were retried on the same provider. A provider
+     * without enough answers yet scores 0 so it gets measured.
+     */
+    private static long score(ChatProvider provider) {
+        long median = provider.getLatencyNanos(0.5);
+        if (median < 0) {
+            return 0;
+        }
+        return (long) (median / Math.max(0.05, 1 - provider.getErrorRate()));
+    }
+
+    private long hedgeDelayNanos(ChatProvider primary) {
+        if (!hedging) {
+            return -1;
+        }
+        long tail = primary.getLatencyNanos(hedgeQuantile);
+        return tail < 0 ? -1 : Math.max(tail, hedgeMinDelayNanos);
+    }
+
+    private <T> CompletableFuture<T> track(ChatProvider provider, AsyncCall<T> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.run(provider);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> attempt = future;
+        attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                provider.onSuccess(System.nanoTime() - start);
+            } else if (attempt.isCancelled()) {
+                provider.onCancelled(System.nanoTime() - start);
+            } else {
+                onFailure(provider, error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            }
+        });
+        return attempt;
+    }
+
+    /** Server errors, rate limits, rejected keys and I/O failures count against the provider. */
+    private static void onFailure(ChatProvider provider, Throwable failure) {
+        if (failure instanceof DeepSeekApiException api) {
+            int status = api.getStatusCode();
+            if (api.isServerError() || api.isRateLimited() || status == 401 || status == 403) {
+                provider.onFailure();
+            } else {
+                // The request itself was bad, another provider would reject it too
+                provider.onIgnored();
+            }
+        } else if (failure instanceof IOException) {
+            provider.onFailure();
+        } else {
+            provider.onIgnored();
+        }
+    }
+
+    private void countHedge(String outcome) {
+        Counter.builder("deepseek.routing.hedges")
+                .description("Calls sent to a second provider after the first was slower than its p95")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * One call and its hedge. Completes with the first answer and cancels the other attempt;
+     * fails only once no attempt is left running. A primary that fails before the hedge delay
+     * fails the call straight away, the governor decides about retrying.
+     */
+    private final class HedgedCall<T> {
+
+        private final AsyncCall<T> call;
+        private final ChatProvider primary;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> running = new ArrayList<>(2);
+        private volatile CompletableFuture<T> hedge;
+        private ScheduledFuture<?> timer;
+        private boolean finished;
+
+        HedgedCall(AsyncCall<T> call, ChatProvider primary) {
+            this.call = call;
+            this.primary = primary;
+        }
+
+        CompletableFuture<T> start(long delayNanos) {
+            result.whenComplete((value, error) -> abandon());
+            launch(primary, false);
+            synchronized (this) {
+                if (!finished) {
+                    timer = scheduler.schedule(this::fireHedge, delayNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            return result;
+        }
+
+        private void fireHedge() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+            }
+            ChatProvider backup = selectHedge(primary);
+            if (backup == null) {
+                countHedge("skipped");
+                return;
+            }
+            log.debug("{} is past its p{} latency, hedging on {}", primary, Math.round(hedgeQuantile * 100), backup);
+            launch(backup, true);
+        }
+
+        private void launch(ChatProvider provider, boolean isHedge) {
+            CompletableFuture<T> attempt = track(provider, call);
+            if (isHedge) {
+                hedge = attempt;
+            }
+            boolean late;
+            synchronized (this) {
+                late = finished;
+                running.add(attempt);
+            }
+            if (late) {
+                attempt.cancel(true);
+                return;
+            }
+            attempt.whenComplete((value, error) -> onDone(attempt, value, error));
+        }
+
+        private void onDone(CompletableFuture<T> attempt, T value, Throwable error) {
+            synchronized (this) {
+                running.remove(attempt);
+                if (finished || (error != null && !running.isEmpty())) {
+                    return;
+                }
+                finished = true;
+            }
+            if (hedge != null) {
+                countHedge(error != null ? "failed" : attempt == hedge ? "won" : "lost");
+            }
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        }
+
+        private void abandon() {
+            List<CompletableFuture<T>> losers;
+            synchronized (this) {
+                finished = true;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                losers = List.copyOf(running);
+            }
+            losers.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/receipts")
+public class ReceiptController {
+
+    private final ReceiptStore receiptStore;
+
+    public ReceiptController(ReceiptStore receiptStore) {
+        this.receiptStore = receiptStore;
+    }
+
+    /**
+     * Newest receipts first. {@code month} (e.g. {@code 2024-05}) is a shortcut for
+     * {@code from}/{@code to} over that month; amounts and dates are inclusive.
+     */
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam(required = false) String merchant,
+                                    @RequestParam(required = false) YearMonth month,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                    @RequestParam(required = false) BigDecimal minTotal,
+                                    @RequestParam(required = false) BigDecimal maxTotal,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "50") int size) {
+        if (month != null) {
+            if (from != null || to != null) {
+                return ResponseEntity.badRequest().body("Use either month or from/to");
+            }
+            from = month.atDay(1);
+            to = month.atEndOfMonth();
+        }
+        if (page < 0 || size < 1) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size >= 1");
+        }
+        return ResponseEntity.ok(receiptStore.search(new ReceiptQuery(merchant, from, to, minTotal, maxTotal, page, size)));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StoredReceipt> find(@PathVariable String id) {
+        StoredReceipt receipt = receiptStore.find(id);
+        return receipt != null ? ResponseEntity.ok(receipt) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,233 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns OCR text into a receipt in two tiers. The local {@link ReceiptParser} handles every
+ * receipt and scores its own result; only receipts scoring below the threshold are sent to
+ * DeepSeek, which answers with JSON in a fixed shape. An escalation that fails or answers
+ * something else falls back to the parser's result when it found a total. At most
+ * {@code receipts.extraction.llm.max-in-flight} escalations wait for DeepSeek at a time; the
+ * next one holds its caller until one of them has answered.
+ */
+@Service
+@Slf4j
+public class ReceiptExtractor {
+
+    static final String SYSTEM_PROMPT = """
+            You extract data from the OCR text of a shop receipt. The text may contain OCR errors.
+            Answer with one JSON object and nothing else, valid against this JSON schema:
+            {"type":"object","additionalProperties":false,"required":["merchant","total","lineItems"],
+             "properties":{
+              "merchant":{"type":["string","null"]},
+              "total":{"type":"number"},
+              "lineItems":{"type":"array","items":{"type":"object","additionalProperties":false,
+               "required":["name","quantity","price"],
+               "properties":{"name":{"type":"string"},"quantity":{"type":"integer","minimum":1},"price":{"type":"number"}}}}}}
+            total is the amount paid. price is the price of the whole line. Amounts are plain numbers without currency
+            symbols. Leave out subtotal, tax and payment lines. Use null for the merchant if the receipt does not show it.""";
+
+    /**
+     * {@code fallback} is set when DeepSeek was asked but failed, and the receipt is the parser's
+     * unsure result. Asking again later may well do better, so it is not worth keeping.
+     */
+    public record Extraction(MainView.Receipt receipt, boolean fallback) {
+    }
+
+    // Amounts stay exact instead of going through double
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .configure(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES, false);
+
+    private final ReceiptParser receiptParser;
+    private final DeepSeekService deepSeekService;
+    private final double confidenceThreshold;
+    private final boolean llmEnabled;
+    private final Duration llmTimeout;
+    private final int maxInputChars;
+    private final Semaphore escalations;
+    private final ExecutorService executor;
+    private final DistributionSummary confidence;
+    private final Counter parsed;
+    private final Counter escalatedSuccess;
+    private final Counter escalatedFallback;
+    private final Counter escalatedFailure;
+
+    public ReceiptExtractor(ReceiptParser receiptParser,
+                            DeepSeekService deepSeekService,
+                            MeterRegistry meterRegistry,
+                            @Value("${receipts.extraction.confidence-threshold:0.8}") double confidenceThreshold,
+                            @Value("${receipts.extraction.llm.enabled:true}") boolean llmEnabled,
+                            @Value("${receipts.extraction.llm.timeout-ms:30000}") long llmTimeoutMs,
+                            @Value("${receipts.extraction.llm.max-input-chars:8000}") int maxInputChars,
+                            @Value("${receipts.extraction.llm.max-in-flight:16}") int maxInFlight) {
+        this.receiptParser = receiptParser;
+        this.deepSeekService = deepSeekService;
+        this.confidenceThreshold = confidenceThreshold;
+        this.llmEnabled = llmEnabled;
+        this.llmTimeout = Duration.ofMillis(llmTimeoutMs);
+        this.maxInputChars = maxInputChars;
+        this.escalations = new Semaphore(Math.max(1, maxInFlight));
+        this.confidence = DistributionSummary.builder("receipt.extraction.confidence")
+                .description("Confidence the local parser gives its own result")
+                .register(meterRegistry);
+        // tier=parser vs. tier=llm gives the escalation rate
+        this.parsed = extractions(meterRegistry, "parser", "success");
+        this.escalatedSuccess = extractions(meterRegistry, "llm", "success");
+        this.escalatedFallback = extractions(meterRegistry, "llm", "parser_fallback");
+        this.escalatedFailure = extractions(meterRegistry, "llm", "failure");
+        AtomicInteger threadCount = new AtomicInteger();
+        // Maps DeepSeek's answers off the HTTP client's I/O threads; the work per answer is tiny
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "receipt-extraction-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Completes at once when the parser is confident enough. Otherwise it completes when DeepSeek
+     * has answered, without a thread waiting for it, but blocks while the maximum number of
+     * escalations are already waiting. Fails with {@link IllegalArgumentException} when neither
+     * tier found a total.
+     */
+    public CompletableFuture<Extraction> extract(String ocrText) {
+        ReceiptParser.Result local = receiptParser.parseScored(ocrText);
+        confidence.record(local.confidence());
+        if (local.confidence() >= confidenceThreshold || !llmEnabled) {
+            if (local.receipt().total() == null) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Total amount not found in OCR text"));
+            }
+            parsed.increment();
+            return CompletableFuture.completedFuture(new Extraction(local.receipt(), false));
+        }
+        log.debug("Parser confidence {} is below {}, asking DeepSeek", local.confidence(), confidenceThreshold);
+        try {
+            // Holds the OCR worker, so a slow DeepSeek slows the intake instead of piling up answers to wait for
+            escalations.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<ChatCompletionResult> answer;
+        try {
+            answer = deepSeekService.completeAsync(request(ocrText), llmTimeout);
+        } catch (RuntimeException e) {
+            answer = CompletableFuture.failedFuture(e);
+        }
+        return answer.whenComplete((result, error) -> escalations.release())
+                .thenApplyAsync(result -> {
+                    try {
+                        return toReceipt(result.content());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor)
+                .handleAsync((receipt, error) -> {
+                    if (error == null) {
+                        escalatedSuccess.increment();
+                        return new Extraction(receipt, false);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (local.receipt().total() != null) {
+                        log.warn("DeepSeek extraction failed, keeping the parser's result: {}", cause.getMessage());
+                        escalatedFallback.increment();
+                        return new Extraction(local.receipt(), true);
+                    }
+                    escalatedFailure.increment();
+                    throw new CompletionException(new IllegalArgumentException(
+                            "Total amount not found in OCR text, and DeepSeek extraction failed: " + cause.getMessage(),
+                            cause));
+                }, executor);
+    }
+
+    private ChatCompletionRequest request(String ocrText) {
+        String text = ocrText.length() > maxInputChars ? ocrText.substring(0, maxInputChars) : ocrText;
+        return new ChatCompletionRequest(DeepSeekService.MODEL,
+                List.of(ChatMessage.system(SYSTEM_PROMPT), ChatMessage.user(text)),
+                Map.of("temperature", 0, "response_format", Map.of("type", "json_object")));
+    }
+
+    /** Maps the answer into a receipt, rejecting anything that does not follow the schema. */
+    static MainView.Receipt toReceipt(String json) throws IOException {
+        JsonNode root = MAPPER.readTree(json);
+        if (root == null || !root.isObject()) {
+            throw new IOException("Expected a JSON object");
+        }
+        JsonNode merchant = root.get("merchant");
+        JsonNode total = root.get("total");
+        JsonNode items = root.get("lineItems");
+        if (merchant == null || !(merchant.isTextual() || merchant.isNull())) {
+            throw new IOException("merchant must be a string or null");
+        }
+        if (total == null || !total.isNumber()) {
+            throw new IOException("total must be a number");
+        }
+        if (items == null || !items.isArray()) {
+            throw new IOException("lineItems must be an array");
+        }
+        List<MainView.LineItem> lineItems = new ArrayList<>(items.size());
+        for (JsonNode item : items) {
+            JsonNode name = item.get("name");
+            JsonNode quantity = item.get("quantity");
+            JsonNode price = item.get("price");
+            if (name == null || !name.isTextual() || quantity == null || !quantity.canConvertToInt()
+                    || !quantity.isIntegralNumber() || quantity.intValue() < 1 || price == null || !price.isNumber()) {
+                throw new IOException("Line item does not match the schema: " + item);
+            }
+            lineItems.add(new MainView.LineItem(name.textValue(), quantity.intValue(), price.decimalValue()));
+        }
+        String merchantName = merchant.isNull() || merchant.textValue().isBlank()
+                ? ReceiptParser.UNKNOWN_MERCHANT : merchant.textValue().trim();
+        return new MainView.Receipt(merchantName, total.decimalValue(), lineItems);
+    }
+
+    private static Counter extractions(MeterRegistry registry, String tier, String outcome) {
+        return Counter.builder("receipt.extraction")
+                .description("Receipts extracted, by the tier that produced the result")
+                .tag("tier", tier)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /** Everything that changes the receipt extracted from a given text, including the parser itself. */
+    public String getConfigurationFingerprint() {
+        String settings = ReceiptParser.VERSION + "|" + confidenceThreshold + "|" + llmEnabled + "|"
+                + maxInputChars + "|" + SYSTEM_PROMPT;
+        return ContentHash.sha256Hex(settings.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
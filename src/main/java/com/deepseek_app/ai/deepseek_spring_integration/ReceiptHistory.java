@@ -0,0 +1,56 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.vaadin.flow.server.VaadinSession;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The receipts processed in one Vaadin session, newest first. Only a summary of each is kept
+ * and the oldest fall off past {@code maxEntries}, so a long session holds a fixed amount of
+ * memory; line items are loaded from the {@link ReceiptStore} and images from the
+ * {@link ReceiptPreviewStore} when a receipt is opened.
+ */
+public final class ReceiptHistory {
+
+    public record Entry(String id, String fileName, String merchant, BigDecimal total, int lineItemCount,
+                        Instant processedAt) {
+    }
+
+    private final int maxEntries;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    ReceiptHistory(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** The history of the session, shared by all of its tabs. Call with the session locked. */
+    public static ReceiptHistory forSession(VaadinSession session, int maxEntries) {
+        ReceiptHistory history = session.getAttribute(ReceiptHistory.class);
+        if (history == null) {
+            history = new ReceiptHistory(maxEntries);
+            session.setAttribute(ReceiptHistory.class, history);
+        }
+        return history;
+    }
+
+    /** Adds the receipt at the top; the same image uploaded again moves up instead of repeating. */
+    public synchronized void add(Entry entry) {
+        entries.removeIf(existing -> existing.id().equals(entry.id()));
+        entries.addFirst(entry);
+        while (entries.size() > maxEntries) {
+            entries.removeLast();
+        }
+    }
+
+    public synchronized List<Entry> fetch(int offset, int limit) {
+        return entries.stream().skip(offset).limit(limit).toList();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
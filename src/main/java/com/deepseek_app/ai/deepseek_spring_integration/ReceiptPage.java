@@ -0,0 +1,7 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.List;
+
+/** One page of a receipt search. There is no total count, {@code hasMore} says whether to ask for the next page. */
+public record ReceiptPage(List<StoredReceipt> items, int page, int size, boolean hasMore) {
+}
@@ -0,0 +1,366 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns Tesseract output into a {@link MainView.Receipt} in a single pass over the text.
+ * Every line is visited once: merchant and total keywords are located with precompiled
+ * alternations while line items are extracted, and lines are addressed by index so no
+ * per-line strings are created. Stateless and thread-safe.
+ */
+@Component
+public class ReceiptParser {
+
+    public static final String UNKNOWN_MERCHANT = "Unknown Merchant";
+
+    /** Bump when a change reads receipts differently, so receipts cached by the old parser are dropped. */
+    public static final int VERSION = 1;
+
+    /**
+     * A parse and how far to trust it: half for finding a total, 0.3 more when the line items add
+     * up to it and 0.2 for a merchant. The total is {@code null} and the confidence 0 when no
+     * total was found.
+     */
+    public record Result(MainView.Receipt receipt, double confidence) {
+    }
+
+    // Order is priority: the first keyword present in the text wins, wherever it appears
+    private static final String[] MERCHANT_KEYWORDS = {"Merchant", "Store", "Vendor", "Market", "Receipt from", "MARKET"};
+    private static final String[] TOTAL_KEYWORDS = {"Subtotal:", "Net Sales:", "Amount Due:", "Grand Total:", "Tax:", "Total :"};
+
+    private static final Pattern MERCHANT_PATTERN = keywordPattern(MERCHANT_KEYWORDS, 0);
+    private static final Pattern TOTAL_PATTERN = keywordPattern(TOTAL_KEYWORDS, Pattern.CASE_INSENSITIVE);
+    // Line items that repeat a sum rather than sell something
+    private static final Pattern SUMMARY_LINE = Pattern.compile(
+            "(?i)(?:sub\\s*total|total|tax|amount due|net sales|balance|change|cash)\\b.*");
+    // At least one digit, so a lone comma is never taken for an amount
+    private static final Pattern AMOUNT_PATTERN = Pattern.compile("[\\d,]*\\d[\\d,]*(?:\\.\\d{2})?");
+    // 2024-05-31, 05/31/2024 or 05/31/24 (US order), 31.05.2024 (European order)
+    private static final Pattern DATE_PATTERN = Pattern.compile(
+            "\\b(?:(\\d{4})-(\\d{2})-(\\d{2})|(\\d{1,2})/(\\d{1,2})/(\\d{4}|\\d{2})|(\\d{1,2})\\.(\\d{1,2})\\.(\\d{4}))\\b");
+
+    /** @throws IllegalArgumentException if the text has no total */
+    public MainView.Receipt parse(String ocrText) {
+        MainView.Receipt receipt = read(ocrText);
+        if (receipt.total() == null) {
+            throw new IllegalArgumentException("Total amount not found in OCR text");
+        }
+        return receipt;
+    }
+
+    /** Like {@link #parse}, but never fails; a receipt without a total gets confidence 0. */
+    public Result parseScored(String ocrText) {
+        MainView.Receipt receipt = read(ocrText);
+        if (receipt.total() == null) {
+            return new Result(receipt, 0);
+        }
+        double confidence = 0.5;
+        if (lineItemsAddUp(receipt)) {
+            confidence += 0.3;
+        }
+        if (!UNKNOWN_MERCHANT.equals(receipt.merchant())) {
+            confidence += 0.2;
+        }
+        return new Result(receipt, confidence);
+    }
+
+    private MainView.Receipt read(String ocrText) {
+        int[] merchantEnds = new int[MERCHANT_KEYWORDS.length];
+        int[] totalEnds = new int[TOTAL_KEYWORDS.length];
+        Arrays.fill(merchantEnds, -1);
+        Arrays.fill(totalEnds, -1);
+
+        Matcher merchantMatcher = MERCHANT_PATTERN.matcher(ocrText);
+        Matcher totalMatcher = TOTAL_PATTERN.matcher(ocrText);
+        Matcher amountMatcher = AMOUNT_PATTERN.matcher(ocrText);
+        List<MainView.LineItem> lineItems = new ArrayList<>();
+
+        int length = ocrText.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = ocrText.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            recordFirstKeywords(merchantMatcher, lineStart, lineEnd, merchantEnds);
+            recordFirstKeywords(totalMatcher, lineStart, lineEnd, totalEnds);
+            MainView.LineItem item = parseLineItem(ocrText, lineStart, lineEnd, amountMatcher);
+            if (item != null) {
+                lineItems.add(item);
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        return new MainView.Receipt(
+                resolveMerchant(ocrText, merchantEnds),
+                resolveTotal(ocrText, totalEnds, amountMatcher),
+                lineItems);
+    }
+
+    /**
+     * Whether the items, without the subtotal, tax and total lines, sum to the total. A
+     * quantity line may print the unit price or the line price, either sum counts.
+     */
+    private static boolean lineItemsAddUp(MainView.Receipt receipt) {
+        BigDecimal priceSum = BigDecimal.ZERO;
+        BigDecimal lineSum = BigDecimal.ZERO;
+        boolean anyItem = false;
+        for (MainView.LineItem item : receipt.lineItems()) {
+            if (SUMMARY_LINE.matcher(item.name()).matches()) {
+                continue;
+            }
+            anyItem = true;
+            priceSum = priceSum.add(item.price());
+            lineSum = lineSum.add(item.price().multiply(BigDecimal.valueOf(item.quantity())));
+        }
+        return anyItem && (priceSum.compareTo(receipt.total()) == 0 || lineSum.compareTo(receipt.total()) == 0);
+    }
+
+    /** The first valid date printed on the receipt, or {@code null} if there is none. */
+    public LocalDate parseDate(String ocrText) {
+        Matcher matcher = DATE_PATTERN.matcher(ocrText);
+        while (matcher.find()) {
+            try {
+                if (matcher.start(1) >= 0) {
+                    return LocalDate.of(number(matcher, 1), number(matcher, 2), number(matcher, 3));
+                }
+                if (matcher.start(4) >= 0) {
+                    int year = number(matcher, 6);
+                    return LocalDate.of(year < 100 ? 2000 + year : year, number(matcher, 4), number(matcher, 5));
+                }
+                return LocalDate.of(number(matcher, 9), number(matcher, 8), number(matcher, 7));
+            } catch (DateTimeException e) {
+                // A phone or reference number that looks like a date, keep looking
+            }
+        }
+        return null;
+    }
+
+    private static int number(Matcher matcher, int group) {
+        return Integer.parseInt(matcher.group(group));
+    }
+
+    private static void recordFirstKeywords(Matcher matcher, int lineStart, int lineEnd, int[] keywordEnds) {
+        matcher.region(lineStart, lineEnd);
+        while (matcher.find()) {
+            for (int group = 1; group <= keywordEnds.length; group++) {
+                if (matcher.start(group) >= 0) {
+                    if (keywordEnds[group - 1] < 0) {
+                        keywordEnds[group - 1] = matcher.end(group);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /** The merchant is the rest of the keyword's line, or the next non-blank line if that is empty. */
+    private static String resolveMerchant(String text, int[] merchantEnds) {
+        for (int keywordEnd : merchantEnds) {
+            if (keywordEnd >= 0) {
+                int start = skipWhitespace(text, keywordEnd, text.length());
+                int end = text.indexOf('\n', start);
+                return text.substring(start, trimEnd(text, start, end < 0 ? text.length() : end));
+            }
+        }
+        return UNKNOWN_MERCHANT;
+    }
+
+    /** The total is the first amount after the highest-priority keyword that has one, or {@code null}. */
+    private static BigDecimal resolveTotal(String text, int[] totalEnds, Matcher amountMatcher) {
+        for (int keywordEnd : totalEnds) {
+            if (keywordEnd >= 0) {
+                amountMatcher.region(keywordEnd, text.length());
+                if (amountMatcher.find()) {
+                    return toBigDecimal(text, amountMatcher.start(), amountMatcher.end());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A line item is a line with a digit and a price after a '$'. The name is the run of
+     * all-uppercase words before the '$', falling back to the first run of letters and spaces.
+     * Lines starting with "Qty" carry the quantity as their second word.
+     */
+    private static MainView.LineItem parseLineItem(String text, int lineStart, int lineEnd, Matcher amountMatcher) {
+        boolean hasDigit = false;
+        int dollar = -1;
+        for (int i = lineStart; i < lineEnd; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c == '$' && dollar < 0) {
+                dollar = i;
+            }
+        }
+        if (!hasDigit || dollar < 0 || !hasNonDollarChar(text, dollar + 1, lineEnd)) {
+            return null;
+        }
+
+        int itemStart = skipWhitespace(text, lineStart, dollar);
+        int itemEnd = trimEnd(text, itemStart, dollar);
+
+        int quantity = 1;
+        if (itemEnd - itemStart >= 3 && text.regionMatches(true, itemStart, "qty", 0, 3)) {
+            quantity = parseQuantity(text, itemStart, itemEnd);
+        }
+        if (quantity <= 0) {
+            return null;
+        }
+
+        // The price is the first amount before the next '$', if any
+        int priceEnd = text.indexOf('$', dollar + 1);
+        if (priceEnd < 0 || priceEnd > lineEnd) {
+            priceEnd = lineEnd;
+        }
+        amountMatcher.region(dollar + 1, priceEnd);
+        if (!amountMatcher.find()) {
+            return null;
+        }
+        BigDecimal price = toBigDecimal(text, amountMatcher.start(), amountMatcher.end());
+
+        String name = leadingUppercaseWords(text, itemStart, itemEnd);
+        if (name.isEmpty()) {
+            name = firstLetterRun(text, itemStart, itemEnd);
+        }
+        return new MainView.LineItem(name, quantity, price);
+    }
+
+    private static String leadingUppercaseWords(String text, int start, int end) {
+        int wordsEnd = start;
+        boolean singleSpaced = true;
+        int i = start;
+        while (i < end) {
+            int wordEnd = i;
+            while (wordEnd < end && !Character.isWhitespace(text.charAt(wordEnd))) {
+                if (!Character.isUpperCase(text.charAt(wordEnd))) {
+                    return join(text, start, wordsEnd, singleSpaced);
+                }
+                wordEnd++;
+            }
+            wordsEnd = wordEnd;
+            int next = skipWhitespace(text, wordEnd, end);
+            if (next - wordEnd > 1 || (next > wordEnd && text.charAt(wordEnd) != ' ')) {
+                singleSpaced = false;
+            }
+            i = next;
+        }
+        return join(text, start, wordsEnd, singleSpaced);
+    }
+
+    private static String join(String text, int start, int end, boolean singleSpaced) {
+        if (singleSpaced) {
+            return text.substring(start, end);
+        }
+        // Rare: words separated by tabs or several spaces are joined with a single space
+        StringBuilder words = new StringBuilder(end - start);
+        boolean inGap = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                inGap = true;
+            } else {
+                if (inGap) {
+                    words.append(' ');
+                    inGap = false;
+                }
+                words.append(c);
+            }
+        }
+        return words.toString();
+    }
+
+    private static String firstLetterRun(String text, int start, int end) {
+        int runStart = start;
+        while (runStart < end && !isLetterOrSpace(text.charAt(runStart))) {
+            runStart++;
+        }
+        int runEnd = runStart;
+        while (runEnd < end && isLetterOrSpace(text.charAt(runEnd))) {
+            runEnd++;
+        }
+        int trimmedStart = skipWhitespace(text, runStart, runEnd);
+        return text.substring(trimmedStart, trimEnd(text, trimmedStart, runEnd));
+    }
+
+    private static int parseQuantity(String text, int start, int end) {
+        int tokenStart = start;
+        while (tokenStart < end && !Character.isWhitespace(text.charAt(tokenStart))) {
+            tokenStart++;
+        }
+        tokenStart = skipWhitespace(text, tokenStart, end);
+        int tokenEnd = tokenStart;
+        while (tokenEnd < end && !Character.isWhitespace(text.charAt(tokenEnd))) {
+            tokenEnd++;
+        }
+        if (tokenStart == tokenEnd) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(text, tokenStart, tokenEnd, 10);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(String text, int start, int end) {
+        char[] digits = new char[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != ',') {
+                digits[length++] = c;
+            }
+        }
+        return new BigDecimal(digits, 0, length);
+    }
+
+    private static boolean hasNonDollarChar(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != '$') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLetterOrSpace(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || Character.isWhitespace(c);
+    }
+
+    private static int skipWhitespace(String text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static Pattern keywordPattern(String[] keywords, int flags) {
+        StringBuilder alternation = new StringBuilder();
+        for (String keyword : keywords) {
+            if (alternation.length() > 0) {
+                alternation.append('|');
+            }
+            alternation.append('(').append(Pattern.quote(keyword)).append(')');
+        }
+        return Pattern.compile(alternation.toString(), flags);
+    }
+}
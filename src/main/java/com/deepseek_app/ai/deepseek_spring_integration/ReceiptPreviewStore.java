@@ -0,0 +1,137 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receipt images the browser can show, kept on disk by image SHA-256 so the UI can link to a
+ * preview by ID instead of holding bytes or spool files per session. The least recently viewed
+ * previews are deleted once the directory grows past {@code ui.preview.max-bytes}.
+ */
+@Component
+@Slf4j
+public class ReceiptPreviewStore {
+
+    private static final String SUFFIX = ".preview";
+
+    private record Preview(String mimeType, long sizeBytes) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    // Access order: iteration starts at the preview viewed longest ago
+    private final Map<String, Preview> previews = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ReceiptPreviewStore(@Value("${ui.preview.directory:${java.io.tmpdir}/receipt-previews}") String directory,
+                               @Value("${ui.preview.max-bytes:268435456}") long maxBytes) throws IOException {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        deleteLeftovers();
+    }
+
+    /** Browsers cannot show TIFF or PDF, those get a text summary instead of a preview. */
+    public static boolean isPreviewable(String mimeType) {
+        return mimeType != null && mimeType.startsWith("image/") && !mimeType.equals("image/tiff");
+    }
+
+    /** Copies the upload in unless it is already there; returns whether a preview exists afterwards. */
+    public boolean put(SpooledUpload upload) {
+        String id = upload.getSha256();
+        if (!isPreviewable(upload.getMimeType()) || upload.getSizeBytes() > maxBytes) {
+            return false;
+        }
+        synchronized (this) {
+            if (previews.get(id) != null) {
+                return true;
+            }
+        }
+        try {
+            // Copied outside the lock, a second upload of the same image just copies it again
+            Files.copy(upload.getPath(), path(id), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Could not keep a preview of {}: {}", upload.getFileName(), e.getMessage());
+            return false;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Preview previous = previews.put(id, new Preview(upload.getMimeType(), upload.getSizeBytes()));
+            totalBytes += upload.getSizeBytes() - (previous != null ? previous.sizeBytes() : 0);
+            Iterator<Map.Entry<String, Preview>> oldest = previews.entrySet().iterator();
+            while (totalBytes > maxBytes && oldest.hasNext()) {
+                Map.Entry<String, Preview> entry = oldest.next();
+                if (!entry.getKey().equals(id)) {
+                    totalBytes -= entry.getValue().sizeBytes();
+                    evicted.add(entry.getKey());
+                    oldest.remove();
+                }
+            }
+        }
+        for (String old : evicted) {
+            delete(old);
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(String id) {
+        return previews.containsKey(id);
+    }
+
+    public synchronized String getMimeType(String id) {
+        Preview preview = previews.get(id);
+        return preview != null ? preview.mimeType() : null;
+    }
+
+    /** Opens the preview; fails with {@link java.nio.file.NoSuchFileException} once it was evicted. */
+    public InputStream open(String id) throws IOException {
+        synchronized (this) {
+            // Marks it as recently viewed
+            previews.get(id);
+        }
+        return Files.newInputStream(path(id));
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private Path path(String id) {
+        // The id is a hex SHA-256, never a path of its own
+        if (!id.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Not an image hash: " + id);
+        }
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private void delete(String id) {
+        try {
+            Files.deleteIfExists(path(id));
+        } catch (IOException e) {
+            log.warn("Could not delete preview {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void deleteLeftovers() throws IOException {
+        // Previews of a previous run are not linked from any session any more
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** Filters of a receipt search; {@code null} means no constraint. Bounds are inclusive. */
+public record ReceiptQuery(String merchant, LocalDate from, LocalDate to, BigDecimal minTotal,
+                           BigDecimal maxTotal, int page, int size) {
+}
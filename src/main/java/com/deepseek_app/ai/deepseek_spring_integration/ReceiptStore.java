@@ -0,0 +1,303 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps every parsed receipt in the embedded database, keyed by the SHA-256 of its image so a
+ * re-upload replaces the earlier row. Writes are queued and a single writer thread stores
+ * whatever has accumulated in one transaction of batched statements. Under load batches grow by
+ * themselves; a lone upload is written straight away. A batch that fails is written again one
+ * receipt at a time, so a single bad row only loses itself. A search can miss receipts that are
+ * still queued.
+ */
+@Repository
+@Slf4j
+public class ReceiptStore {
+
+    private static final int MAX_TEXT = 255;
+
+    private static final String UPSERT_RECEIPT = """
+            MERGE INTO receipt (image_sha256, file_name, merchant, merchant_key, receipt_date, total, created_at)
+            KEY (image_sha256)
+            VALUES (:id, :fileName, :merchant, :merchantKey, :date, :total, :createdAt)""";
+    private static final String DELETE_LINE_ITEMS = "DELETE FROM receipt_line_item WHERE receipt_sha256 = :id";
+    private static final String INSERT_LINE_ITEM = """
+            INSERT INTO receipt_line_item (receipt_sha256, line_no, item_name, quantity, price)
+            VALUES (:id, :lineNo, :name, :quantity, :price)""";
+    private static final String SELECT_RECEIPT =
+            "SELECT image_sha256, file_name, merchant, receipt_date, total, created_at FROM receipt";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+    private final int maxPageSize;
+    private final BlockingQueue<StoredReceipt> pending;
+    private final Thread writer;
+    private final Timer writeTimer;
+    private final Timer queryTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter failedReceipts;
+    private final Object progress = new Object();
+    private long enqueued;
+    private long processed;
+    private volatile boolean running = true;
+
+    public ReceiptStore(NamedParameterJdbcTemplate jdbc,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${receipts.store.batch-size:500}") int batchSize,
+                        @Value("${receipts.store.queue-capacity:10000}") int queueCapacity,
+                        @Value("${receipts.store.max-page-size:500}") int maxPageSize) {
+        this.jdbc = jdbc;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxPageSize = maxPageSize;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeTimer = Timer.builder("receipt.store.write")
+                .description("Time to store one batch of receipts")
+                .register(meterRegistry);
+        this.queryTimer = Timer.builder("receipt.store.query")
+                .description("Receipt search time, receipts and their line items")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("receipt.store.batch.size")
+                .description("Receipts written per transaction")
+                .register(meterRegistry);
+        this.failedReceipts = Counter.builder("receipt.store.failed")
+                .description("Receipts that could not be stored, even on their own")
+                .register(meterRegistry);
+        this.writer = new Thread(this::writeLoop, "receipt-store");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the receipt for writing. Blocks while the queue is full, which slows OCR down to
+     * what the database keeps up with rather than dropping receipts.
+     */
+    public void add(StoredReceipt receipt) {
+        synchronized (progress) {
+            enqueued++;
+        }
+        try {
+            pending.put(receipt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markProcessed(1);
+            log.warn("Interrupted before receipt {} was queued for storage", receipt.id());
+        }
+    }
+
+    /** Waits until everything queued so far has been written. */
+    public void flush() throws InterruptedException {
+        synchronized (progress) {
+            long target = enqueued;
+            while (processed < target) {
+                progress.wait();
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public StoredReceipt find(String id) {
+        List<StoredReceipt> receipts = withLineItems(jdbc.query(SELECT_RECEIPT + " WHERE image_sha256 = :id",
+                new MapSqlParameterSource("id", id), ReceiptStore::mapReceipt));
+        return receipts.isEmpty() ? null : receipts.get(0);
+    }
+
+    public ReceiptPage search(ReceiptQuery query) {
+        int size = Math.max(1, Math.min(query.size(), maxPageSize));
+        int page = Math.max(0, query.page());
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_RECEIPT).append(" WHERE 1 = 1");
+        if (query.merchant() != null && !query.merchant().isBlank()) {
+            sql.append(" AND merchant_key = :merchant");
+            params.addValue("merchant", merchantKey(query.merchant()));
+        }
+        if (query.from() != null) {
+            sql.append(" AND receipt_date >= :from");
+            params.addValue("from", query.from());
+        }
+        if (query.to() != null) {
+            sql.append(" AND receipt_date <= :to");
+            params.addValue("to", query.to());
+        }
+        if (query.minTotal() != null) {
+            sql.append(" AND total >= :minTotal");
+            params.addValue("minTotal", query.minTotal());
+        }
+        if (query.maxTotal() != null) {
+            sql.append(" AND total <= :maxTotal");
+            params.addValue("maxTotal", query.maxTotal());
+        }
+        // One row more than the page tells whether there is a next page without counting them all
+        sql.append(" ORDER BY receipt_date DESC, image_sha256 LIMIT :limit OFFSET :offset");
+        params.addValue("limit", size + 1).addValue("offset", (long) page * size);
+
+        return queryTimer.record(() -> {
+            List<StoredReceipt> rows = jdbc.query(sql.toString(), params, ReceiptStore::mapReceipt);
+            boolean hasMore = rows.size() > size;
+            List<StoredReceipt> items = withLineItems(hasMore ? rows.subList(0, size) : rows);
+            return new ReceiptPage(items, page, size, hasMore);
+        });
+    }
+
+    private List<StoredReceipt> withLineItems(List<StoredReceipt> receipts) {
+        if (receipts.isEmpty()) {
+            return receipts;
+        }
+        // One query for the whole page instead of one per receipt
+        Map<String, List<MainView.LineItem>> lineItems = new LinkedHashMap<>();
+        jdbc.query("""
+                        SELECT receipt_sha256, item_name, quantity, price FROM receipt_line_item
+                        WHERE receipt_sha256 IN (:ids) ORDER BY receipt_sha256, line_no""",
+                new MapSqlParameterSource("ids", receipts.stream().map(StoredReceipt::id).toList()),
+                rs -> {
+                    lineItems.computeIfAbsent(rs.getString(1), id -> new ArrayList<>())
+                            .add(new MainView.LineItem(rs.getString(2), rs.getInt(3), rs.getBigDecimal(4)));
+                });
+        return receipts.stream()
+                .map(r -> new StoredReceipt(r.id(), r.fileName(), r.merchant(), r.date(), r.total(),
+                        lineItems.getOrDefault(r.id(), List.of()), r.createdAt()))
+                .toList();
+    }
+
+    private void writeLoop() {
+        List<StoredReceipt> batch = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                StoredReceipt first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                writeOneByOne(batch, e);
+            } finally {
+                markProcessed(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /** The batch rolled back as a whole; the receipts that are fine on their own are stored now. */
+    private void writeOneByOne(List<StoredReceipt> batch, RuntimeException batchFailure) {
+        if (batch.size() == 1) {
+            logFailure(batch.get(0), batchFailure);
+            return;
+        }
+        log.warn("Could not store a batch of {} receipts ({}), storing them one by one",
+                batch.size(), batchFailure.getMessage());
+        for (StoredReceipt receipt : batch) {
+            try {
+                write(List.of(receipt));
+            } catch (RuntimeException e) {
+                logFailure(receipt, e);
+            }
+        }
+    }
+
+    private void logFailure(StoredReceipt receipt, RuntimeException e) {
+        failedReceipts.increment();
+        log.error("Could not store receipt {} from {}", receipt.id(), receipt.fileName(), e);
+    }
+
+    private void write(List<StoredReceipt> batch) {
+        // The same image twice in one batch would insert its line items twice, the last one wins
+        Map<String, StoredReceipt> latest = batch.stream()
+                .collect(Collectors.toMap(StoredReceipt::id, Function.identity(), (first, second) -> second,
+                        LinkedHashMap::new));
+        List<SqlParameterSource> receipts = new ArrayList<>(latest.size());
+        List<SqlParameterSource> ids = new ArrayList<>(latest.size());
+        List<SqlParameterSource> lineItems = new ArrayList<>();
+        for (StoredReceipt receipt : latest.values()) {
+            receipts.add(new MapSqlParameterSource()
+                    .addValue("id", receipt.id())
+                    .addValue("fileName", truncate(receipt.fileName(), MAX_TEXT))
+                    .addValue("merchant", truncate(receipt.merchant(), MAX_TEXT))
+                    .addValue("merchantKey", merchantKey(receipt.merchant()))
+                    .addValue("date", receipt.date())
+                    .addValue("total", receipt.total())
+                    .addValue("createdAt", receipt.createdAt().atOffset(ZoneOffset.UTC)));
+            ids.add(new MapSqlParameterSource("id", receipt.id()));
+            List<MainView.LineItem> items = receipt.lineItems();
+            for (int i = 0; i < items.size(); i++) {
+                MainView.LineItem item = items.get(i);
+                lineItems.add(new MapSqlParameterSource()
+                        .addValue("id", receipt.id())
+                        .addValue("lineNo", i)
+                        .addValue("name", truncate(item.name(), 1000))
+                        .addValue("quantity", item.quantity())
+                        .addValue("price", item.price()));
+            }
+        }
+        writeTimer.record(() -> transactions.executeWithoutResult(status -> {
+            jdbc.batchUpdate(UPSERT_RECEIPT, receipts.toArray(SqlParameterSource[]::new));
+            jdbc.batchUpdate(DELETE_LINE_ITEMS, ids.toArray(SqlParameterSource[]::new));
+            jdbc.batchUpdate(INSERT_LINE_ITEM, lineItems.toArray(SqlParameterSource[]::new));
+        }));
+        batchSizes.record(latest.size());
+    }
+
+    private void markProcessed(int count) {
+        synchronized (progress) {
+            processed += count;
+            progress.notifyAll();
+        }
+    }
+
+    private static StoredReceipt mapReceipt(ResultSet rs, int row) throws SQLException {
+        return new StoredReceipt(rs.getString("image_sha256"), rs.getString("file_name"), rs.getString("merchant"),
+                rs.getObject("receipt_date", LocalDate.class), rs.getBigDecimal("total"), List.of(),
+                rs.getObject("created_at", OffsetDateTime.class).toInstant());
+    }
+
+    private static String merchantKey(String merchant) {
+        return truncate(merchant.trim().toLowerCase(Locale.ROOT), MAX_TEXT);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Whatever is still queued gets written before the data source closes
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
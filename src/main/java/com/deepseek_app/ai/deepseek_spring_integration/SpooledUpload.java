@@ -0,0 +1,88 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An upload that was written once to the spool directory. Everyone that reads the file (the
+ * preview, the OCR job) holds a reference, and the file is deleted when the last one is released.
+ * Files that belong to someone else, see {@link #ofExistingFile}, are never deleted.
+ */
+@Slf4j
+public final class SpooledUpload {
+
+    private final String fileName;
+    private final String mimeType;
+    private final Path path;
+    private final long sizeBytes;
+    private final String sha256;
+    private final boolean owned;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    SpooledUpload(String fileName, String mimeType, Path path, long sizeBytes, String sha256) {
+        this(fileName, mimeType, path, sizeBytes, sha256, true);
+    }
+
+    private SpooledUpload(String fileName, String mimeType, Path path, long sizeBytes, String sha256,
+                          boolean owned) {
+        this.fileName = fileName;
+        this.mimeType = mimeType;
+        this.path = path;
+        this.sizeBytes = sizeBytes;
+        this.sha256 = sha256;
+        this.owned = owned;
+    }
+
+    /** Wraps a file that is read in place, e.g. by a bulk run; releasing it leaves the file alone. */
+    public static SpooledUpload ofExistingFile(Path path, String sha256) throws IOException {
+        return new SpooledUpload(path.getFileName().toString(), Files.probeContentType(path), path,
+                Files.size(path), sha256, false);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /** Hex SHA-256 of the content, computed while the upload was written. */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    public SpooledUpload retain() {
+        if (references.getAndUpdate(count -> count > 0 ? count + 1 : count) <= 0) {
+            throw new IllegalStateException("Upload " + fileName + " has already been released");
+        }
+        return this;
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0 && owned) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
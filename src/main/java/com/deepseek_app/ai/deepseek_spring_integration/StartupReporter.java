@@ -0,0 +1,60 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+/**
+ * Logs how long startup took once the application is ready: JVM start to {@code main}, and
+ * {@code main} to ready. With {@code -Dstartup.analysis=true} the slowest startup steps are
+ * listed as well; they stay available at {@code /actuator/startup}.
+ */
+@Component
+@Slf4j
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final int slowestSteps;
+
+    public StartupReporter(@Value("${startup.report.slowest-steps:10}") int slowestSteps) {
+        this.slowestSteps = slowestSteps;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long jvmStarted = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long mainStarted = DeepseekSpringIntegrationApplication.MAIN_STARTED_MILLIS;
+        long ready = System.currentTimeMillis();
+        Duration spring = event.getTimeTaken();
+        log.info("Ready {} ms after JVM start: {} ms before main (JVM and class loading), {} ms in Spring",
+                ready - jvmStarted, mainStarted > 0 ? mainStarted - jvmStarted : "?",
+                spring != null ? spring.toMillis() : "?");
+
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (startup instanceof BufferingApplicationStartup buffering && slowestSteps > 0) {
+            String steps = buffering.getBufferedTimeline().getEvents().stream()
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(slowestSteps)
+                    .map(step -> String.format("  %6d ms  %s %s", step.getDuration().toMillis(),
+                            step.getStartupStep().getName(), tags(step)))
+                    .collect(Collectors.joining("\n"));
+            log.info("Slowest startup steps:\n{}", steps);
+        }
+    }
+
+    private static String tags(StartupTimeline.TimelineEvent step) {
+        StringBuilder tags = new StringBuilder();
+        step.getStartupStep().getTags().forEach(tag -> tags.append(tag.getKey()).append('=').append(tag.getValue())
+                .append(' '));
+        return tags.toString().trim();
+    }
+}
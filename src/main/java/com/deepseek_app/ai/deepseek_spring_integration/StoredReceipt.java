@@ -0,0 +1,14 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A parsed receipt as kept in the {@link ReceiptStore}, identified by the SHA-256 of its image.
+ * {@code date} is the date printed on the receipt, or the day it was processed if none was found.
+ */
+public record StoredReceipt(String id, String fileName, String merchant, LocalDate date, BigDecimal total,
+                            List<MainView.LineItem> lineItems, Instant createdAt) {
+}
@@ -0,0 +1,82 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.sun.jna.Pointer;
+import net.sourceforge.lept4j.Pix;
+import net.sourceforge.lept4j.util.LeptUtils;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One natively initialised Tesseract instance. Unlike {@link net.sourceforge.tess4j.Tesseract},
+ * which loads the traineddata on every doOCR call, the engine keeps its handle open between
+ * images. Not thread-safe; borrow it from {@link TesseractPool}.
+ */
+public class TesseractEngine implements AutoCloseable {
+
+    private final ITessAPI.TessBaseAPI handle;
+    private int uses;
+    private boolean closed;
+
+    TesseractEngine(String datapath, String language, int pageSegMode) throws TesseractException {
+        handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit3(handle, datapath, language) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new TesseractException("Could not initialise Tesseract with datapath '" + datapath
+                    + "' and language '" + language + "'");
+        }
+        TessAPI1.TessBaseAPISetPageSegMode(handle, pageSegMode);
+    }
+
+    /** Without a native handle, for tests of the pool that override every method. */
+    TesseractEngine() {
+        handle = null;
+    }
+
+    public String recognize(BufferedImage image) throws TesseractException {
+        if (closed) {
+            throw new IllegalStateException("Tesseract engine has been closed");
+        }
+        uses++;
+        Pix pix = null;
+        Pointer text = null;
+        try {
+            // The BufferedImage overload is deprecated, the RenderedImage one does the same conversion
+            pix = LeptUtils.convertImageToPix((RenderedImage) image);
+            TessAPI1.TessBaseAPISetImage2(handle, pix);
+            text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            return text == null ? "" : text.getString(0, StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new TesseractException(e);
+        } finally {
+            if (text != null) {
+                TessAPI1.TessDeleteText(text);
+            }
+            if (pix != null) {
+                LeptUtils.dispose(pix);
+            }
+            // Drop the page results and the adaptive classifier state so the next image
+            // starts from the same state as a freshly initialised engine
+            TessAPI1.TessBaseAPIClear(handle);
+            TessAPI1.TessBaseAPIClearAdaptiveClassifier(handle);
+        }
+    }
+
+    int getUses() {
+        return uses;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+}
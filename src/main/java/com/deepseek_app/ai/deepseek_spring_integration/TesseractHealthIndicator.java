@@ -0,0 +1,32 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Out of service while the Tesseract engines are still warming up, so the readiness probe
+ * holds traffic back until the first upload no longer pays for native initialisation. A failed
+ * warm-up is reported but does not keep the instance out: the AI endpoints still work, and
+ * uploads try to create engines themselves.
+ */
+@Component
+public class TesseractHealthIndicator implements HealthIndicator {
+
+    private final TesseractPool tesseractPool;
+
+    public TesseractHealthIndicator(TesseractPool tesseractPool) {
+        this.tesseractPool = tesseractPool;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = tesseractPool.isWarmingUp() ? Health.outOfService() : Health.up();
+        health.withDetail("engines", tesseractPool.getPoolSize())
+                .withDetail("idle", tesseractPool.getIdleCount());
+        if (tesseractPool.getWarmUpFailure() != null) {
+            health.withDetail("warmUpFailure", tesseractPool.getWarmUpFailure());
+        }
+        return health.build();
+    }
+}
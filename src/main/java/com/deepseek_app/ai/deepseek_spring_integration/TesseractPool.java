@@ -0,0 +1,239 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of pre-initialised {@link TesseractEngine}s. Each engine is used by one thread at
+ * a time and goes back to the pool after the image is recognised, so concurrent uploads share
+ * warm engines instead of loading the traineddata for every receipt.
+ */
+@Component
+@Slf4j
+public class TesseractPool {
+
+    private final String datapath;
+    private final String language;
+    private final int pageSegMode;
+    private final int poolSize;
+    private final long acquireTimeoutMs;
+    private final int maxUsesPerEngine;
+    private final boolean warmUp;
+
+    private final BlockingQueue<TesseractEngine> idleEngines;
+    private final AtomicInteger createdEngines = new AtomicInteger();
+    private volatile boolean shutdown;
+    private volatile boolean warmingUp;
+    private volatile String warmUpFailure;
+
+    public TesseractPool(@Value("${ocr.tesseract.datapath:E:\\Program Files\\Tesseract-OCR\\tessdata}") String datapath,
+                         @Value("${ocr.tesseract.language:eng}") String language,
+                         @Value("${ocr.tesseract.page-seg-mode:3}") int pageSegMode,
+                         @Value("${ocr.tesseract.pool-size:0}") int poolSize,
+                         @Value("${ocr.tesseract.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+                         @Value("${ocr.tesseract.max-uses-per-engine:500}") int maxUsesPerEngine,
+                         @Value("${ocr.tesseract.warm-up:true}") boolean warmUp) {
+        this.datapath = datapath;
+        this.language = language;
+        this.pageSegMode = pageSegMode;
+        this.poolSize = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.maxUsesPerEngine = maxUsesPerEngine;
+        this.warmUp = warmUp;
+        this.idleEngines = new ArrayBlockingQueue<>(this.poolSize);
+    }
+
+    /**
+     * Creates the engines on a background thread, so startup does not wait for the native
+     * libraries and traineddata to load. Uploads arriving meanwhile create engines themselves;
+     * {@link #isWarmingUp()} feeds the readiness probe until warm-up is over.
+     */
+    @PostConstruct
+    public void startWarmUp() {
+        if (!warmUp) {
+            return;
+        }
+        warmingUp = true;
+        Thread thread = new Thread(this::warmUp, "tesseract-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        BufferedImage blank = new BufferedImage(64, 32, BufferedImage.TYPE_BYTE_GRAY);
+        int warmed = 0;
+        try {
+            // Uploads may have claimed slots already; warm-up only fills the rest
+            while (!shutdown) {
+                if (createdEngines.incrementAndGet() > poolSize) {
+                    // Give back only the slot this check claimed; a shutdown exit never claimed one
+                    createdEngines.decrementAndGet();
+                    break;
+                }
+                TesseractEngine engine = newEngine();
+                boolean healthy = false;
+                try {
+                    // The first recognition loads the remaining lazily initialised native state
+                    engine.recognize(blank);
+                    healthy = true;
+                } finally {
+                    release(engine, healthy);
+                }
+                warmed++;
+            }
+            log.info("Warmed up {} Tesseract engines in {} ms", warmed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (TesseractException | RuntimeException | LinkageError e) {
+            // Engines are created lazily on first use instead; the upload will report the failure
+            warmUpFailure = e.toString();
+            log.warn("Could not warm up Tesseract engines ({}), falling back to lazy creation", e.getMessage());
+        } finally {
+            warmingUp = false;
+        }
+    }
+
+    public boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    /** Why warm-up failed, or {@code null} if it did not. */
+    public String getWarmUpFailure() {
+        return warmUpFailure;
+    }
+
+    public String recognize(File imageFile) throws TesseractException {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(imageFile);
+        } catch (IOException e) {
+            throw new TesseractException(e);
+        }
+        if (image == null) {
+            throw new TesseractException("Unsupported image format: " + imageFile.getName());
+        }
+        return recognize(image);
+    }
+
+    public String recognize(BufferedImage image) throws TesseractException {
+        TesseractEngine engine = borrow();
+        boolean healthy = false;
+        try {
+            String text = engine.recognize(image);
+            healthy = true;
+            return text;
+        } catch (TesseractException e) {
+            // Bad input, the engine itself is still fine
+            healthy = true;
+            throw e;
+        } finally {
+            release(engine, healthy);
+        }
+    }
+
+    /**
+     * Identifies everything that changes OCR output: datapath, language, segmentation mode and
+     * the traineddata files themselves. Cached OCR results are only valid for the same value.
+     */
+    public String getConfigurationFingerprint() {
+        StringBuilder fingerprint = new StringBuilder()
+                .append(datapath).append('|').append(language).append('|').append(pageSegMode);
+        for (String lang : language.split("\\+")) {
+            File trainedData = new File(datapath, lang + ".traineddata");
+            fingerprint.append('|').append(lang)
+                    .append(':').append(trainedData.length())
+                    .append(':').append(trainedData.lastModified());
+        }
+        return ContentHash.sha256Hex(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getIdleCount() {
+        return idleEngines.size();
+    }
+
+    private TesseractEngine borrow() throws TesseractException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        while (true) {
+            if (shutdown) {
+                throw new TesseractException("Tesseract pool is shut down");
+            }
+            TesseractEngine engine = idleEngines.poll();
+            if (engine != null) {
+                return engine;
+            }
+            if (createdEngines.incrementAndGet() <= poolSize) {
+                return newEngine();
+            }
+            createdEngines.decrementAndGet();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TesseractException("No Tesseract engine available after " + acquireTimeoutMs + " ms");
+            }
+            try {
+                // Wake up periodically in case a discarded engine freed up capacity
+                engine = idleEngines.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)),
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TesseractException("Interrupted while waiting for a Tesseract engine");
+            }
+            if (engine != null) {
+                return engine;
+            }
+        }
+    }
+
+    private void release(TesseractEngine engine, boolean healthy) {
+        if (shutdown || !healthy || engine.getUses() >= maxUsesPerEngine) {
+            if (!healthy) {
+                log.warn("Discarding unhealthy Tesseract engine");
+            }
+            // A replacement is created lazily by the next borrower
+            createdEngines.decrementAndGet();
+            engine.close();
+            return;
+        }
+        idleEngines.offer(engine);
+    }
+
+    /** Builds an engine for a slot that has already been counted in {@link #createdEngines}. */
+    private TesseractEngine newEngine() throws TesseractException {
+        try {
+            return createEngine();
+        } catch (TesseractException | RuntimeException | LinkageError e) {
+            createdEngines.decrementAndGet();
+            throw e;
+        }
+    }
+
+    TesseractEngine createEngine() throws TesseractException {
+        return new TesseractEngine(datapath, language, pageSegMode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        TesseractEngine engine;
+        while ((engine = idleEngines.poll()) != null) {
+            engine.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+/**
+ * Outbound rate limit: refills {@code permitsPerSecond} tokens up to {@code burst}. A caller that
+ * finds the bucket empty reserves the next token and sleeps until it is due, so waiting callers
+ * are served in arrival order and the rate holds exactly. A server-requested pause
+ * ({@code Retry-After}) holds every caller back until it ends.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Reserves a token and returns how long the caller must wait before using it, or -1 without
+     * reserving anything if that would be longer than {@code maxWaitNanos}.
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        refill(now);
+        long waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        waitNanos = Math.max(waitNanos, pausedUntilNanos - now);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        // Going negative queues the reservation behind the ones already handed out
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /** Holds back all reservations for {@code nanos}, e.g. after a 429 with Retry-After. */
+    public synchronized void pause(long nanos) {
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + nanos);
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill(System.nanoTime());
+        return Math.max(0, tokens);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,40 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+/**
+ * Estimates DeepSeek token counts without a tokenizer, using DeepSeek's published ratios: about
+ * 0.3 tokens per English character and 0.6 per Chinese character. Good enough to budget a
+ * context window; the exact count comes back in the response usage.
+ */
+public final class TokenEstimator {
+
+    /** Role and separators the chat template adds around every message. */
+    static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        double tokens = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            tokens += isWideScript(codePoint) ? 0.6 : 0.3;
+            i += Character.charCount(codePoint);
+        }
+        return (int) Math.ceil(tokens);
+    }
+
+    public static int estimate(ChatMessage message) {
+        return estimate(message.content()) + MESSAGE_OVERHEAD;
+    }
+
+    private static boolean isWideScript(int codePoint) {
+        if (codePoint < 0x2E80) {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
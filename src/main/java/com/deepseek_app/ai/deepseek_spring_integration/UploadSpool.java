@@ -0,0 +1,179 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.vaadin.flow.component.upload.Receiver;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Writes receipt uploads straight from the request stream into a managed directory, hashing
+ * the bytes on the way. Each upload lands on disk exactly once and is never held in the heap.
+ * An upload growing past {@code ocr.upload.max-bytes} is cut off and deleted; the browser's own
+ * size check is only a courtesy to well-behaved clients.
+ */
+@Component
+@Slf4j
+public class UploadSpool {
+
+    private static final String SUFFIX = ".upload";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final DistributionSummary uploadSizes;
+
+    public UploadSpool(@Value("${ocr.upload.spool-dir:${java.io.tmpdir}/receipt-uploads}") String directory,
+                       @Value("${ocr.upload.max-bytes:52428800}") long maxBytes,
+                       MeterRegistry meterRegistry) throws IOException {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.uploadSizes = DistributionSummary.builder("receipt.upload.size")
+                .description("Size of spooled receipt uploads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Files.createDirectories(this.directory);
+        deleteLeftovers();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** A receiver for one {@code Upload} component; it keeps the most recent finished upload. */
+    public SpoolReceiver newReceiver() {
+        return new SpoolReceiver();
+    }
+
+    private void deleteLeftovers() throws IOException {
+        // Files from a previous run were never released, nobody can reference them any more
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+                log.debug("Deleted stale upload {}", leftover);
+            }
+        }
+    }
+
+    public final class SpoolReceiver implements Receiver {
+
+        private SpoolOutputStream current;
+        private SpooledUpload completed;
+
+        @Override
+        public synchronized OutputStream receiveUpload(String fileName, String mimeType) {
+            discard();
+            try {
+                Path path = Files.createTempFile(directory, "receipt-", SUFFIX);
+                current = new SpoolOutputStream(fileName, mimeType, path, maxBytes);
+                return current;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create spool file in " + directory, e);
+            }
+        }
+
+        /**
+         * Hands over the finished upload, or {@code null} if there is none. The caller owns the
+         * returned reference and must release it.
+         */
+        public synchronized SpooledUpload take() {
+            if (current != null) {
+                completed = current.toUpload();
+                current = null;
+                uploadSizes.record(completed.getSizeBytes());
+            }
+            SpooledUpload upload = completed;
+            completed = null;
+            return upload;
+        }
+
+        /** Deletes a failed or unclaimed upload. */
+        public synchronized void discard() {
+            if (current != null) {
+                current.abandon();
+                current = null;
+            }
+            if (completed != null) {
+                completed.release();
+                completed = null;
+            }
+        }
+    }
+
+    private static final class SpoolOutputStream extends OutputStream {
+
+        private final String fileName;
+        private final String mimeType;
+        private final Path path;
+        private final long maxBytes;
+        private final FileChannel channel;
+        private final MessageDigest digest = ContentHash.newSha256();
+        private long size;
+        private String sha256;
+
+        SpoolOutputStream(String fileName, String mimeType, Path path, long maxBytes) throws IOException {
+            this.fileName = fileName;
+            this.mimeType = mimeType;
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (size + length > maxBytes) {
+                abandon();
+                throw new IOException("Upload " + fileName + " is larger than " + maxBytes + " bytes");
+            }
+            // Vaadin's copy buffer is written through as is, no intermediate copy
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            digest.update(bytes, offset, length);
+            size += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+                sha256 = HexFormat.of().formatHex(digest.digest());
+            }
+        }
+
+        SpooledUpload toUpload() {
+            if (sha256 == null) {
+                throw new IllegalStateException("Upload " + fileName + " has not finished");
+            }
+            return new SpooledUpload(fileName, mimeType, path, size, sha256);
+        }
+
+        void abandon() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete partial upload {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+CREATE TABLE IF NOT EXISTS receipt (
+    image_sha256 VARCHAR(64) PRIMARY KEY,
+    file_name    VARCHAR(255),
+    merchant     VARCHAR(255)   NOT NULL,
+    -- Lower-cased merchant, so lookups are case-insensitive and still use the index
+    merchant_key VARCHAR(255)   NOT NULL,
+    receipt_date DATE           NOT NULL,
+    total        DECIMAL(19, 4) NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS receipt_line_item (
+    receipt_sha256 VARCHAR(64)    NOT NULL,
+    line_no        INT            NOT NULL,
+    item_name      VARCHAR(1000)  NOT NULL,
+    quantity       INT            NOT NULL,
+    price          DECIMAL(19, 4) NOT NULL,
+    PRIMARY KEY (receipt_sha256, line_no),
+    FOREIGN KEY (receipt_sha256) REFERENCES receipt (image_sha256) ON DELETE CASCADE
+);
+
+-- "Merchant X this month" is an index range scan; the other two serve date-only and amount-only reports
+CREATE INDEX IF NOT EXISTS receipt_merchant_date ON receipt (merchant_key, receipt_date);
+CREATE INDEX IF NOT EXISTS receipt_by_date ON receipt (receipt_date);
+CREATE INDEX IF NOT EXISTS receipt_by_total ON receipt (total);
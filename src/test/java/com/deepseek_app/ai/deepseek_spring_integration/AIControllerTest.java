@@ -0,0 +1,60 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class AIControllerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final DeepSeekService deepSeekService = mock(DeepSeekService.class);
+    private final BatchGenerationService batchGenerationService =
+            new BatchGenerationService(deepSeekService, 16, 8, 16, 5000, 1000);
+
+    @AfterEach
+    void shutdown() {
+        batchGenerationService.shutdown();
+    }
+
+    @Test
+    void concurrentBatchStreamsOneWholeObjectPerLine() throws Exception {
+        when(deepSeekService.generateText(anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> "answer to " + invocation.getArgument(0));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(
+                new AIController(deepSeekService, null, batchGenerationService, 5000)).build();
+        List<String> prompts = IntStream.range(0, 500).mapToObj(i -> "prompt " + i).toList();
+
+        MvcResult result = mvc.perform(post("/api/ai/generate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(MAPPER.writeValueAsString(new BatchGenerationRequest(prompts, 16, null))))
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        List<BatchItemResult> items = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            items.add(MAPPER.readValue(line, BatchItemResult.class));
+        }
+        assertThat(items).extracting(BatchItemResult::index)
+                .containsExactlyInAnyOrderElementsOf(IntStream.range(0, 500).boxed().toList());
+        assertThat(items).allSatisfy(item ->
+                assertThat(item.response()).isEqualTo("answer to prompt " + item.index()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimiterTest {
+
+    @Test
+    void blockingAndAsyncCallersAreServedInArrivalOrder() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, 0.5, 60_000);
+        assertThat(limiter.acquire(0)).isTrue();
+        CompletableFuture<Void> asyncFirst = limiter.acquireAsync();
+        CompletableFuture<Boolean> blockingSecond = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(TimeUnit.SECONDS.toNanos(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+
+        limiter.release(AimdConcurrencyLimiter.Outcome.SUCCESS, 0);
+
+        assertThat(asyncFirst).isCompleted();
+        Thread.sleep(100);
+        assertThat(blockingSecond).isNotDone();
+        limiter.release(AimdConcurrencyLimiter.Outcome.SUCCESS, 0);
+        assertThat(blockingSecond.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void blockingCallerThatTimesOutGivesUpItsPlace() throws Exception {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, 0.5, 60_000);
+        assertThat(limiter.acquire(0)).isTrue();
+
+        assertThat(limiter.acquire(TimeUnit.MILLISECONDS.toNanos(50))).isFalse();
+        CompletableFuture<Void> next = limiter.acquireAsync();
+        limiter.release(AimdConcurrencyLimiter.Outcome.SUCCESS, 0);
+
+        assertThat(next).isCompleted();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkResultWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesAfterKillAndDropsTheTornLine() throws IOException {
+        Path output = directory.resolve("out/receipts.jsonl");
+        MainView.Receipt receipt = new MainView.Receipt("Shop", new BigDecimal("12.50"), List.of());
+        try (BulkResultWriter writer = BulkResultWriter.open(output, true)) {
+            writer.write(BulkReceiptResult.success("a.jpg", "aa", receipt, 120));
+            writer.write(BulkReceiptResult.failure("sub/b.pdf", "bb", "unreadable", 80));
+        }
+        // Killed halfway through the third line
+        Files.writeString(output, "{\"file\":\"c.jpg\",\"sha", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (BulkResultWriter writer = BulkResultWriter.open(output, true)) {
+            assertThat(writer.getCompleted()).containsExactly("a.jpg");
+            writer.write(BulkReceiptResult.success("c.jpg", "cc", receipt, 95));
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"merchant\":\"Shop\"").contains("\"total\":12.50").doesNotContain("error");
+        assertThat(lines.get(2)).startsWith("{\"file\":\"c.jpg\",\"sha256\":\"cc\"");
+        try (BulkResultWriter writer = BulkResultWriter.open(output, false)) {
+            assertThat(writer.getCompleted()).isEmpty();
+        }
+        assertThat(output).isEmptyFile();
+    }
+
+    @Test
+    void resumeRetriesReceiptsThatFailed() throws IOException {
+        Path output = directory.resolve("receipts.jsonl");
+        MainView.Receipt receipt = new MainView.Receipt("Shop", new BigDecimal("3.10"), List.of());
+        try (BulkResultWriter writer = BulkResultWriter.open(output, true)) {
+            writer.write(BulkReceiptResult.success("a.jpg", "aa", receipt, 120));
+            writer.write(BulkReceiptResult.failure("b.jpg", "bb", "DeepSeek circuit breaker is open", 5));
+        }
+
+        try (BulkResultWriter writer = BulkResultWriter.open(output, true)) {
+            assertThat(writer.getCompleted()).containsExactly("a.jpg");
+            writer.write(BulkReceiptResult.success("b.jpg", "bb", receipt, 140));
+        }
+
+        try (BulkResultWriter writer = BulkResultWriter.open(output, true)) {
+            assertThat(writer.getCompleted()).containsExactlyInAnyOrder("a.jpg", "b.jpg");
+        }
+        assertThat(Files.readAllLines(output)).hasSize(3);
+    }
+}
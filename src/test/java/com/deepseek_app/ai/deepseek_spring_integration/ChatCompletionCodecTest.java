@@ -0,0 +1,93 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpEntity;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatCompletionCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void escapesPromptsAndWritesOptions() throws IOException {
+        String prompt = "Say \"hi\"\nthen a backslash \\ and a tab\t";
+        ChatCompletionRequest request = new ChatCompletionRequest("deepseek-chat",
+                List.of(ChatMessage.system("Be brief"), ChatMessage.user(prompt)), Map.of("temperature", 0.2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChatCompletionCodec.writeRequest(request, true, out);
+        JsonNode json = mapper.readTree(out.toByteArray());
+
+        assertThat(json.path("model").asText()).isEqualTo("deepseek-chat");
+        assertThat(json.path("messages").path(1).path("content").asText()).isEqualTo(prompt);
+        assertThat(json.path("temperature").asDouble()).isEqualTo(0.2);
+        assertThat(json.path("stream").asBoolean()).isTrue();
+    }
+
+    @Test
+    void asyncEntityProducesItsBytesWithoutGetContent() throws IOException {
+        ChatCompletionRequest request = ChatCompletionRequest.ofPrompt("deepseek-chat", "hi");
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ChatCompletionCodec.writeRequest(request, false, expected);
+
+        HttpEntity entity = ChatCompletionCodec.toAsyncEntity(request, false);
+
+        // The async client only wraps entities that cannot produce their own content
+        assertThat(entity).isInstanceOf(HttpAsyncContentProducer.class);
+        assertThat(entity.getContentLength()).isEqualTo(expected.size());
+        assertThat(entity.getContent().readAllBytes()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void readsFirstChoiceAndUsage() throws IOException {
+        String response = """
+                {"id": "chatcmpl-1", "object": "chat.completion",
+                 "choices": [
+                   {"index": 0, "logprobs": {"content": [{"token": "x"}]},
+                    "message": {"role": "assistant", "content": "Hello \\"there\\""}, "finish_reason": "stop"},
+                   {"index": 1, "message": {"role": "assistant", "content": "ignored"}}
+                 ],
+                 "usage": {"prompt_tokens": 12, "completion_tokens": 5, "total_tokens": 17,
+                           "prompt_tokens_details": {"cached_tokens": 0}}}
+                """;
+
+        ChatCompletionResult result = ChatCompletionCodec.readResult(
+                new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.content()).isEqualTo("Hello \"there\"");
+        assertThat(result.usage()).isEqualTo(new ChatCompletionResult.Usage(12, 5, 17));
+    }
+
+    @Test
+    void readsDeepSeekPrefixCacheHits() throws IOException {
+        String response = """
+                {"choices": [{"message": {"content": "ok"}}],
+                 "usage": {"prompt_tokens": 120, "completion_tokens": 5, "total_tokens": 125,
+                           "prompt_cache_hit_tokens": 64, "prompt_cache_miss_tokens": 56}}
+                """;
+
+        ChatCompletionResult result = ChatCompletionCodec.readResult(
+                new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.usage()).isEqualTo(new ChatCompletionResult.Usage(120, 5, 125, 64));
+    }
+
+    @Test
+    void readsStreamedDeltas() throws IOException {
+        assertThat(ChatCompletionCodec.readDelta(
+                "{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hel\"}}]}")).isEqualTo("Hel");
+        assertThat(ChatCompletionCodec.readDelta(
+                "{\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}")).isEmpty();
+    }
+}
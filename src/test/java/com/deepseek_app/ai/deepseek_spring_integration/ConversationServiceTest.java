@@ -0,0 +1,86 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationServiceTest {
+
+    private final DeepSeekService deepSeekService = mock(DeepSeekService.class);
+    private final List<ChatCompletionRequest> requests = new ArrayList<>();
+
+    @Test
+    void resendsHistoryInStableOrderSoPromptsShareAPrefix() {
+        answerWith(request -> "answer " + requests.size());
+        ConversationService service = service(16000);
+        String id = service.create("Be brief.").getId();
+
+        service.send(id, "first").join();
+        ConversationReply reply = service.send(id, "second").join();
+
+        assertThat(reply.content()).isEqualTo("answer 2");
+        assertThat(requests.get(1).messages()).startsWith(requests.get(0).messages().toArray(ChatMessage[]::new));
+        assertThat(requests.get(1).messages()).extracting(ChatMessage::content)
+                .containsExactly("Be brief.", "first", "answer 1", "second");
+    }
+
+    @Test
+    void replacesOldestTurnsWithSummaryOnceOverBudget() {
+        String longAnswer = "x".repeat(1000);
+        answerWith(request -> request.messages().get(0).content().equals(ConversationService.SUMMARY_PROMPT)
+                ? "they talked" : longAnswer);
+        ConversationService service = service(1000);
+        String id = service.create("Be brief.").getId();
+
+        List<Boolean> trimmed = new ArrayList<>();
+        for (int turn = 0; turn < 6; turn++) {
+            trimmed.add(service.send(id, "question " + turn).join().trimmed());
+        }
+
+        // Cut well below the limit, so the following turns keep their prefix
+        assertThat(trimmed).containsExactly(false, false, false, true, false, false);
+        Conversation conversation = service.find(id);
+        assertThat(conversation.getSummary()).endsWith("they talked");
+        assertThat(conversation.getMessages()).extracting(ChatMessage::content)
+                .containsExactly("Be brief.", conversation.getSummary(), "question 3", longAnswer,
+                        "question 4", longAnswer, "question 5", longAnswer);
+    }
+
+    @Test
+    void rejectsSecondMessageWhileOneIsRunning() {
+        CompletableFuture<ChatCompletionResult> pending = new CompletableFuture<>();
+        when(deepSeekService.completeAsync(any(), any())).thenReturn(pending);
+        ConversationService service = service(16000);
+        String id = service.create(null).getId();
+
+        CompletableFuture<ConversationReply> first = service.send(id, "first");
+        assertThatIllegalStateException().isThrownBy(() -> service.send(id, "second"));
+
+        pending.complete(new ChatCompletionResult("done", null));
+        assertThat(first.join().content()).isEqualTo("done");
+        assertThat(service.find(id).getMessages()).hasSize(3);
+    }
+
+    private void answerWith(Function<ChatCompletionRequest, String> answer) {
+        when(deepSeekService.completeAsync(any(), any())).thenAnswer(invocation -> {
+            ChatCompletionRequest request = invocation.getArgument(0);
+            requests.add(request);
+            return CompletableFuture.completedFuture(new ChatCompletionResult(answer.apply(request), null));
+        });
+    }
+
+    private ConversationService service(int maxContextTokens) {
+        return new ConversationService(deepSeekService, new SimpleMeterRegistry(), "You are a helpful assistant.",
+                maxContextTokens, 0.5, 200, true, 100, 10, 60_000, 5_000);
+    }
+}
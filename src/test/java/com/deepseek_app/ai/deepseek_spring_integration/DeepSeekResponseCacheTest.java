@@ -0,0 +1,144 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeepSeekResponseCacheTest {
+
+    private static DeepSeekResponseCache.Key key(String prompt) {
+        return DeepSeekResponseCache.Key.of("deepseek-chat", List.of(ChatMessage.user(prompt)), Map.of());
+    }
+
+    @Test
+    void normalisesWhitespaceAndLineEndings() {
+        assertThat(key("  hello\r\nworld \n")).isEqualTo(key("hello\nworld"));
+        assertThat(key("hello")).isNotEqualTo(key("hello!"));
+    }
+
+    @Test
+    void servesRepeatedPromptsFromCache() throws IOException {
+        DeepSeekResponseCache cache = new DeepSeekResponseCache(true, 60_000, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        String first = cache.get(key("hi"), () -> "answer-" + loads.incrementAndGet(), value -> true);
+        String second = cache.get(key("hi"), () -> "answer-" + loads.incrementAndGet(), value -> true);
+
+        assertThat(first).isEqualTo("answer-1");
+        assertThat(second).isEqualTo("answer-1");
+        assertThat(cache.getStats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotKeepValuesRejectedByThePredicate() throws IOException {
+        DeepSeekResponseCache cache = new DeepSeekResponseCache(true, 60_000, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(key("hi"), loads::incrementAndGet, value -> false);
+        cache.get(key("hi"), loads::incrementAndGet, value -> false);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalRequests() throws Exception {
+        DeepSeekResponseCache cache = new DeepSeekResponseCache(true, 60_000, 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> cache.get(key("same"), () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return "shared";
+                }, value -> true)));
+            }
+            // Give every caller the chance to join the in-flight request before it finishes
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("shared");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void waitingCallersHearOfAnErrorInTheSharedLoad() throws Exception {
+        DeepSeekResponseCache cache = new DeepSeekResponseCache(true, 60_000, 10);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = callers.submit(() -> cache.<String>get(key("same"), () -> {
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new StackOverflowError();
+            }, value -> true));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = callers.submit(() -> cache.get(key("same"), () -> "own", value -> true));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            // Either it joined the failed load or it came late and loaded its own; it never hangs
+            try {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("own");
+            } catch (ExecutionException e) {
+                assertThat(e).hasCauseInstanceOf(StackOverflowError.class);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void sharesOneAsyncLoadWithoutBlockingCallers() throws Exception {
+        DeepSeekResponseCache cache = new DeepSeekResponseCache(true, 60_000, 10);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = cache.getAsync(key("hi"), () -> {
+            loads.incrementAndGet();
+            return upstream;
+        }, value -> true);
+        CompletableFuture<String> second = cache.getAsync(key("hi"), () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        }, value -> true);
+        assertThat(first).isNotDone();
+        upstream.complete("answer");
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("answer");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("answer");
+        assertThat(cache.getAsync(key("hi"), CompletableFuture::new, value -> true)).isCompletedWithValue("answer");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getStats().coalesced()).isEqualTo(1);
+    }
+}
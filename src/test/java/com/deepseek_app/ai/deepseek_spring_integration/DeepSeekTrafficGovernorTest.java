@@ -0,0 +1,111 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeepSeekTrafficGovernorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void retriesRateLimitedCallAfterRetryAfterAndBacksOffConcurrency() throws Exception {
+        DeepSeekTrafficGovernor governor = governor(3, 4);
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+
+        String result = governor.call(Duration.ofSeconds(5), remaining -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new DeepSeekApiException(429, "slow down", Duration.ofMillis(200));
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+        assertThat(governor.getConcurrencyLimit()).isLessThan(8);
+        assertThat(meterRegistry.get("deepseek.governor.retries").tag("reason", "429").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void opensCircuitAfterServerErrorsAndFailsFast() {
+        DeepSeekTrafficGovernor governor = governor(1, 4);
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> governor.call(null, remaining -> {
+                attempts.incrementAndGet();
+                throw new DeepSeekApiException(500, "boom", null);
+            })).isInstanceOf(DeepSeekApiException.class);
+        }
+
+        assertThatThrownBy(() -> governor.call(null, remaining -> attempts.incrementAndGet()))
+                .isInstanceOf(DeepSeekUnavailableException.class)
+                .satisfies(e -> assertThat(((DeepSeekUnavailableException) e).getRetryAfter()).isPositive());
+        assertThat(attempts).hasValue(4);
+        assertThat(governor.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        DeepSeekTrafficGovernor governor = governor(3, 4);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> governor.call(null, remaining -> {
+            attempts.incrementAndGet();
+            throw new DeepSeekApiException(400, "bad request", null);
+        })).isInstanceOf(DeepSeekApiException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(governor.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void queuesAsyncCallsBeyondTheConcurrencyLimitWithoutThreads() throws Exception {
+        DeepSeekTrafficGovernor governor = governor(1, 4);
+        List<CompletableFuture<String>> upstream = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            results.add(governor.callAsync(Duration.ofSeconds(5), remaining -> {
+                CompletableFuture<String> call = new CompletableFuture<>();
+                synchronized (upstream) {
+                    upstream.add(call);
+                }
+                return call;
+            }));
+        }
+        // The limit starts at 8, the other two wait for a slot
+        assertThat(upstream).hasSize(8);
+        assertThat(governor.getInFlight()).isEqualTo(8);
+
+        synchronized (upstream) {
+            upstream.get(0).complete("done");
+            upstream.get(1).complete("done");
+        }
+        assertThat(upstream).hasSize(10);
+        synchronized (upstream) {
+            upstream.forEach(call -> call.complete("done"));
+        }
+        for (CompletableFuture<String> result : results) {
+            assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("done");
+        }
+        assertThat(governor.getInFlight()).isZero();
+    }
+
+    private DeepSeekTrafficGovernor governor(int maxAttempts, int circuitWindow) {
+        return new DeepSeekTrafficGovernor(meterRegistry, true, 100, 10, 1000,
+                8, 1, 64, 0.7, 30_000,
+                maxAttempts, 10, 1000,
+                circuitWindow, circuitWindow, 0.5, 60_000, 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DocumentOcrServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final TesseractPool tesseractPool = mock(TesseractPool.class);
+    private final ImagePreprocessor preprocessor =
+            new ImagePreprocessor(new SimpleMeterRegistry(), false, List.of(), 300, 80, 10);
+    private DocumentOcrService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void recognisesPdfPagesInParallelAndMergesInOrder() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(tesseractPool.getPoolSize()).thenReturn(4);
+        when(tesseractPool.recognize(any(BufferedImage.class))).thenAnswer(call -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(200);
+            running.decrementAndGet();
+            // Page widths are 100, 110, 120 ... points, so the width identifies the page
+            BufferedImage image = call.getArgument(0);
+            return "page-" + Math.round((image.getWidth() * 72f / 100 - 100) / 10) + "\n";
+        });
+        service = new DocumentOcrService(tesseractPool, preprocessor, new SimpleMeterRegistry(),
+                10, 100, 64L << 20, 0);
+
+        String text = service.recognize(pdf(4));
+
+        assertThat(text).isEqualTo("page-0\n\npage-1\n\npage-2\n\npage-3\n");
+        assertThat(maxRunning.get()).isGreaterThan(1);
+        assertThat(service.getAvailableMemoryKb()).isEqualTo(64 * 1024);
+    }
+
+    @Test
+    void rejectsDocumentsOverThePageLimit() throws Exception {
+        when(tesseractPool.getPoolSize()).thenReturn(2);
+        service = new DocumentOcrService(tesseractPool, preprocessor, new SimpleMeterRegistry(),
+                3, 100, 64L << 20, 0);
+
+        Path document = pdf(4);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> service.recognize(document))
+                .withMessageContaining("4 pages");
+    }
+
+    private Path pdf(int pages) throws Exception {
+        Path file = directory.resolve("invoice.pdf");
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < pages; page++) {
+                document.addPage(new PDPage(new PDRectangle(100 + page * 10, 200)));
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+}
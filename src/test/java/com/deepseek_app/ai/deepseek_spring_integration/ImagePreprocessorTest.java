@@ -0,0 +1,73 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ImagePreprocessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(meterRegistry, true,
+            List.of("grayscale", "crop", "downscale", "binarize", "deskew"), 300, 80, 10);
+
+    @Test
+    void estimatesAndRemovesSkew() {
+        BufferedImage skewed = ImagePreprocessor.binarize(
+                ImagePreprocessor.crop(ImagePreprocessor.grayscale(receiptPhoto(1200, 1600, 3))));
+
+        assertThat(preprocessor.estimateSkewDegrees(skewed)).isCloseTo(3, within(0.3));
+        BufferedImage straightened = preprocessor.deskew(skewed);
+        assertThat(preprocessor.estimateSkewDegrees(straightened)).isCloseTo(0, within(0.3));
+    }
+
+    @Test
+    void reducesPhotoToBinarizedPaperAtTargetResolution() {
+        BufferedImage photo = receiptPhoto(3000, 4000, 0);
+
+        BufferedImage processed = preprocessor.process(photo, null);
+
+        // The cropped paper, 80 mm wide, at 300 DPI is 945 px wide
+        assertThat(processed.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        assertThat(processed.getWidth()).isBetween(900, 990);
+        assertThat(processed.getHeight()).isBetween(1200, 1320);
+        int[] values = processed.getRaster().getPixels(0, 0, processed.getWidth(), processed.getHeight(), (int[]) null);
+        assertThat(values).containsOnly(0, 255);
+        assertThat(meterRegistry.get("ocr.preprocess").tag("stage", "binarize").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesRenderedPagesAtTheirResolution() {
+        BufferedImage page = new BufferedImage(600, 800, BufferedImage.TYPE_BYTE_GRAY);
+
+        assertThat(preprocessor.downscale(page, 300f)).isSameAs(page);
+        assertThat(preprocessor.downscale(page, 600f).getWidth()).isEqualTo(300);
+    }
+
+    /** Dark table, white paper over the middle half, black bars as text lines rotated by {@code degrees}. */
+    private static BufferedImage receiptPhoto(int width, int height, double degrees) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(70, 50, 40));
+            graphics.fillRect(0, 0, width, height);
+            graphics.rotate(Math.toRadians(degrees), width / 2.0, height / 2.0);
+            graphics.setColor(new Color(235, 235, 225));
+            graphics.fillRect(width / 4, height / 4, width / 2, height / 2);
+            graphics.setColor(new Color(30, 30, 30));
+            int lineHeight = height / 80;
+            for (int y = height / 4 + 2 * lineHeight; y < height * 3 / 4 - 2 * lineHeight; y += 2 * lineHeight) {
+                graphics.fillRect(width / 4 + width / 20, y, width / 2 - width / 10, lineHeight);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,86 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Stored expectations for load test results, per scenario and concurrency, e.g.
+ * {@code generate.c32.throughput} (req/s, at least), {@code generate.c32.p99-ms} (at most) and
+ * {@code generate.c32.error-rate} (at most). A result fails when it is worse than the baseline
+ * by more than {@code -Dperf.tolerance} (default 0.25). Every result is also written to
+ * {@code -Dperf.results} so baselines can be refreshed from a run on the reference machine.
+ */
+final class LoadBaselines {
+
+    private final Properties baselines = new Properties();
+    private final double tolerance = Double.parseDouble(System.getProperty("perf.tolerance", "0.25"));
+    private final Path resultsFile = Paths.get(System.getProperty("perf.results", "target/perf-results.properties"));
+
+    LoadBaselines(String resource) {
+        try (InputStream in = LoadBaselines.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No baselines at " + resource);
+            }
+            baselines.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Records the result and returns what regressed, empty if nothing did. */
+    List<String> check(LoadDriver.Result result) {
+        String prefix = result.scenario() + ".c" + result.concurrency() + ".";
+        record(prefix, result);
+        List<String> regressions = new ArrayList<>();
+        Double throughput = baseline(prefix + "throughput");
+        if (throughput != null && result.throughput() < throughput * (1 - tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%sthroughput %.1f req/s, baseline %.1f",
+                    prefix, result.throughput(), throughput));
+        }
+        Double p99 = baseline(prefix + "p99-ms");
+        if (p99 != null && result.p99Ms() > p99 * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%sp99 %.1f ms, baseline %.1f", prefix, result.p99Ms(), p99));
+        }
+        Double errorRate = baseline(prefix + "error-rate");
+        if (errorRate != null && result.errorRate() > errorRate) {
+            regressions.add(String.format(Locale.ROOT, "%serror rate %.3f, baseline %.3f",
+                    prefix, result.errorRate(), errorRate));
+        }
+        return regressions;
+    }
+
+    private Double baseline(String key) {
+        String value = baselines.getProperty(key);
+        return value != null ? Double.valueOf(value.trim()) : null;
+    }
+
+    private synchronized void record(String prefix, LoadDriver.Result result) {
+        Properties results = new Properties();
+        try {
+            if (Files.exists(resultsFile)) {
+                try (InputStream in = Files.newInputStream(resultsFile)) {
+                    results.load(in);
+                }
+            } else if (resultsFile.getParent() != null) {
+                Files.createDirectories(resultsFile.getParent());
+            }
+            results.setProperty(prefix + "throughput", String.format(Locale.ROOT, "%.1f", result.throughput()));
+            results.setProperty(prefix + "p99-ms", String.format(Locale.ROOT, "%.1f", result.p99Ms()));
+            results.setProperty(prefix + "error-rate", String.format(Locale.ROOT, "%.3f", result.errorRate()));
+            try (OutputStream out = Files.newOutputStream(resultsFile)) {
+                results.store(out, "Load test results, copy into src/test/resources/perf/baselines.properties");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
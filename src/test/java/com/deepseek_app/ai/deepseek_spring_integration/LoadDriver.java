@@ -0,0 +1,106 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load: {@code concurrency} workers each run the call again as soon as it returns,
+ * until the request count is used up. A call that throws counts as an error; its latency is
+ * still recorded, a slow failure is as bad for callers as a slow success.
+ */
+final class LoadDriver {
+
+    @FunctionalInterface
+    interface Call {
+        void run() throws Exception;
+    }
+
+    record Result(String scenario, int concurrency, int requests, int errors, double throughput,
+                  double p50Ms, double p99Ms, double maxMs) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-16s c=%-4d n=%-5d errors=%-4d %8.1f req/s  p50=%7.1f ms  p99=%7.1f ms  max=%7.1f ms",
+                    scenario, concurrency, requests, errors, throughput, p50Ms, p99Ms, maxMs);
+        }
+    }
+
+    private LoadDriver() {
+    }
+
+    /** Runs one level; the first {@code warmUp} calls are not measured. */
+    static Result run(String scenario, int concurrency, int warmUp, int requests, Call call) throws Exception {
+        if (warmUp > 0) {
+            measure(concurrency, warmUp, call);
+        }
+        long start = System.nanoTime();
+        Samples samples = measure(concurrency, requests, call);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = samples.latenciesNanos();
+        Arrays.sort(latencies);
+        return new Result(scenario, concurrency, latencies.length, samples.errors(), latencies.length / elapsedSeconds,
+                percentileMs(latencies, 0.50), percentileMs(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+    }
+
+    private record Samples(long[] latenciesNanos, int errors) {
+    }
+
+    private static Samples measure(int concurrency, int requests, Call call) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[requests];
+        AtomicInteger recorded = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                running.add(workers.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long start = System.nanoTime();
+                        try {
+                            call.run();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[recorded.getAndIncrement()] = System.nanoTime() - start;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        return new Samples(Arrays.copyOf(latencies, recorded.get()), errors.get());
+    }
+
+    /** Nearest rank, so p99 of 100 samples is the 99th and never an interpolated value. */
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+}
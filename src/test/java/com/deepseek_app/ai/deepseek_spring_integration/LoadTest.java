@@ -0,0 +1,195 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput and latency of the DeepSeek and OCR paths at rising concurrency, against the
+ * in-process {@link StubDeepSeekServer}. Tagged {@code perf}, so it only runs with
+ * {@code mvn -Pperf test}. Tesseract is replaced by a fixed delay: recognition time is
+ * Tesseract's own and the test measures what the application adds around it.
+ */
+@Tag("perf")
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTest {
+
+    private static final long OCR_DELAY_MS = 20;
+    private static final String RECEIPT_TEXT =
+            "Store: Corner Shop\nBREAD $2.50\nQty 2 MILK $2.40\nTax: 0.00\nSubtotal: 4.90\n";
+
+    private static final StubDeepSeekServer STUB = startStub();
+    private static final LoadBaselines BASELINES = new LoadBaselines("/perf/baselines.properties");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OcrJobService ocrJobService;
+
+    @MockBean
+    private DocumentOcrService documentOcrService;
+
+    @DynamicPropertySource
+    static void stubDeepSeek(DynamicPropertyRegistry registry) {
+        registry.add("deepseek.api.url", STUB::getCompletionsUrl);
+        // Every call has to reach the stub, none may be routed to OpenRouter
+        registry.add("deepseek.openrouter.enabled", () -> false);
+        registry.add("spring.ai.openai.base-url", STUB::getBaseUrl);
+        // The default limits model our API quota; here they would only measure the token bucket
+        registry.add("deepseek.governor.rate.permits-per-second", () -> 100_000);
+        registry.add("deepseek.governor.rate.burst", () -> 100_000);
+        registry.add("deepseek.governor.concurrency.initial", () -> 256);
+        registry.add("deepseek.governor.concurrency.max", () -> 256);
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:perf;DB_CLOSE_DELAY=-1");
+        registry.add("ocr.tesseract.warm-up", () -> false);
+        registry.add("ocr.tesseract.pool-size", () -> 4);
+    }
+
+    @BeforeEach
+    void resetStub() throws Exception {
+        STUB.reset();
+        when(documentOcrService.recognize(any())).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(OCR_DELAY_MS);
+            return RECEIPT_TEXT;
+        });
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void generate() throws Exception {
+        List<String> regressions = new ArrayList<>();
+        for (int concurrency : new int[]{1, 8, 32, 128}) {
+            regressions.addAll(run("generate", concurrency, this::generateOnce));
+        }
+        assertThat(regressions).isEmpty();
+    }
+
+    @Test
+    void generateStream() throws Exception {
+        STUB.streaming(8, 5);
+        List<String> regressions = new ArrayList<>();
+        for (int concurrency : new int[]{8, 32}) {
+            regressions.addAll(run("generate_stream", concurrency, () -> {
+                HttpResponse<String> response = client.send(post("/api/ai/generate/stream"),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200 || !response.body().contains("token7")) {
+                    throw new IOException("Status " + response.statusCode() + ": " + response.body());
+                }
+            }));
+        }
+        assertThat(regressions).isEmpty();
+    }
+
+    /** Injected 503s are retried by the governor; callers should only see them as latency. */
+    @Test
+    void generateWithUpstreamErrors() throws Exception {
+        STUB.errors(0.05, 503);
+        List<String> regressions = run("generate_errors", 32, this::generateOnce);
+        assertThat(STUB.getFailureCount()).isPositive();
+        assertThat(regressions).isEmpty();
+    }
+
+    @Test
+    void ocrJobs() throws Exception {
+        Path image = Files.createTempFile("load-test", ".png");
+        try {
+            List<String> regressions = new ArrayList<>();
+            for (int concurrency : new int[]{1, 4, 16}) {
+                regressions.addAll(run("ocr_jobs", concurrency, () -> ocrOnce(image)));
+            }
+            assertThat(regressions).isEmpty();
+        } finally {
+            Files.deleteIfExists(image);
+        }
+    }
+
+    private List<String> run(String scenario, int concurrency, LoadDriver.Call call) throws Exception {
+        int requests = Math.max(40, concurrency * 20);
+        LoadDriver.Result result = LoadDriver.run(scenario, concurrency, Math.max(10, concurrency), requests, call);
+        log.info("{}", result);
+        return BASELINES.check(result);
+    }
+
+    private void generateOnce() throws Exception {
+        HttpResponse<String> response = client.send(post("/api/ai/generate"), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Status " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private void ocrOnce(Path image) throws Exception {
+        // A new hash every time, so no upload is answered from the OCR cache
+        String sha256 = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+        SpooledUpload upload = SpooledUpload.ofExistingFile(image, sha256);
+        CompletableFuture<MainView.Receipt> done = new CompletableFuture<>();
+        try {
+            ocrJobService.submit(upload, new OcrJobListener() {
+                @Override
+                public void onCompleted(OcrJob job, String ocrText, MainView.Receipt receipt) {
+                    done.complete(receipt);
+                }
+
+                @Override
+                public void onFailed(OcrJob job, Exception error) {
+                    done.completeExceptionally(error);
+                }
+            });
+        } finally {
+            upload.release();
+        }
+        done.get(30, TimeUnit.SECONDS);
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString("\"Explain load testing in one sentence\""))
+                .build();
+    }
+
+    private static StubDeepSeekServer startStub() {
+        try {
+            return StubDeepSeekServer.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the DeepSeek stub", e);
+        }
+    }
+}
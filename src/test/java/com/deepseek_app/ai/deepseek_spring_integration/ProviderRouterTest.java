@@ -0,0 +1,135 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProviderRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProviderRouter router;
+
+    @AfterEach
+    void shutdown() {
+        router.shutdown();
+    }
+
+    @Test
+    void routesToFastestProviderWithItsModelName() throws Exception {
+        router = router(false);
+        seed("deepseek", 200);
+        seed("openrouter", 20);
+
+        ChatCompletionRequest sent = router.call(provider -> provider.prepare(
+                ChatCompletionRequest.ofPrompt(DeepSeekService.MODEL, "hi")), true);
+
+        assertThat(sent.model()).isEqualTo("deepseek/deepseek-chat");
+    }
+
+    @Test
+    void failingProviderIsTakenOutOfRotation() throws Exception {
+        router = router(false);
+        seed("deepseek", 200);
+        seed("openrouter", 20);
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> router.call(provider -> {
+                assertThat(provider.getName()).isEqualTo("openrouter");
+                throw new DeepSeekApiException(503, "overloaded", null);
+            }, true)).isInstanceOf(DeepSeekApiException.class);
+        }
+
+        assertThat(provider("openrouter").isEjected()).isTrue();
+        assertThat(router.call(ChatProvider::getName, true)).isEqualTo("deepseek");
+    }
+
+    @Test
+    void failsFastWhenEveryProviderIsOutOfRotation() throws Exception {
+        router = router(false);
+        for (ChatProvider provider : router.getProviders()) {
+            for (int i = 0; i < 10; i++) {
+                provider.onFailure();
+            }
+        }
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> router.call(provider -> calls.incrementAndGet(), true))
+                .isInstanceOfSatisfying(DeepSeekUnavailableException.class, e ->
+                        assertThat(e.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(30)));
+        assertThat(router.callAsync(provider -> CompletableFuture.completedFuture(calls.incrementAndGet())))
+                .isCompletedExceptionally();
+        assertThat(calls.get()).isZero();
+    }
+
+    @Test
+    void hedgesSlowCallOnNextProviderAndCancelsTheLoser() throws Exception {
+        router = router(true);
+        seed("deepseek", 20);
+        seed("openrouter", 100);
+        CompletableFuture<String> stuck = new CompletableFuture<>();
+
+        String answer = router.callAsync(provider -> provider.getName().equals("deepseek")
+                        ? stuck
+                        : CompletableFuture.completedFuture("from " + provider.getName()))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(answer).isEqualTo("from openrouter");
+        assertThat(stuck).isCancelled();
+        assertThat(meterRegistry.get("deepseek.routing.hedges").tag("outcome", "won").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void hedgeThatLosesDoesNotLookFaster() throws Exception {
+        router = router(true);
+        seed("deepseek", 20);
+        // 1.0 to 2.0 s, so one more sample below the median would move it
+        for (int i = 0; i <= 10; i++) {
+            provider("openrouter").onSuccess(TimeUnit.MILLISECONDS.toNanos(1000 + 100 * i));
+        }
+        CompletableFuture<String> primary = new CompletableFuture<>();
+        CompletableFuture<String> hedge = new CompletableFuture<>();
+        CountDownLatch hedged = new CountDownLatch(1);
+
+        CompletableFuture<String> answer = router.callAsync(provider -> {
+            if (provider.getName().equals("deepseek")) {
+                return primary;
+            }
+            hedged.countDown();
+            return hedge;
+        });
+        assertThat(hedged.await(5, TimeUnit.SECONDS)).isTrue();
+        primary.complete("from deepseek");
+
+        assertThat(answer.get(5, TimeUnit.SECONDS)).isEqualTo("from deepseek");
+        // The loser is cancelled once the answer is in, which may be after get() returns
+        assertThatThrownBy(() -> hedge.get(5, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+        assertThat(provider("openrouter").getLatencyNanos(0.5)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    private ProviderRouter router(boolean hedging) {
+        return new ProviderRouter(new DeepSeekRequestFactory("http://localhost/v1/chat/completions", "key"),
+                meterRegistry, true, "http://localhost/api/v1/chat/completions", "key", "deepseek/deepseek-chat",
+                100, 10, 0, 20, 0.5, 30000, hedging, 0.95, 10, 100);
+    }
+
+    private void seed(String name, long latencyMs) {
+        ChatProvider provider = provider(name);
+        for (int i = 0; i < 10; i++) {
+            provider.onSuccess(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        }
+    }
+
+    private ChatProvider provider(String name) {
+        return router.getProviders().stream().filter(p -> p.getName().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReceiptExtractorTest {
+
+    // Merchant and total but no line items: 0.7, below the threshold
+    private static final String UNSURE = "Vendor\n  Hilltop Supply  \nAMOUNT DUE:\n 12.50\n";
+    private static final String SURE = "Vendor\n  Hilltop Supply  \nBREAD $2.50\nMILK $2.40\nAMOUNT DUE:\n 4.90\n";
+
+    private final DeepSeekService deepSeekService = mock(DeepSeekService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReceiptExtractor extractor = extractor(16);
+
+    @AfterEach
+    void shutdown() {
+        extractor.shutdown();
+    }
+
+    @Test
+    void escalatesUnsureParseToDeepSeek() throws Exception {
+        answerWith(CompletableFuture.completedFuture(new ChatCompletionResult("""
+                {"merchant": "Hilltop Supply", "total": 12.50,
+                 "lineItems": [{"name": "ROPE", "quantity": 1, "price": 12.50}]}""", null)));
+
+        ReceiptExtractor.Extraction extracted = extractor.extract(UNSURE).get(5, TimeUnit.SECONDS);
+
+        assertThat(extracted.fallback()).isFalse();
+        assertThat(extracted.receipt().lineItems()).containsExactly(new MainView.LineItem("ROPE", 1, new BigDecimal("12.50")));
+        assertThat(extractions("llm", "success")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsConfidentParseWithoutAskingDeepSeek() throws Exception {
+        ReceiptExtractor.Extraction extracted = extractor.extract(SURE).get(5, TimeUnit.SECONDS);
+
+        assertThat(extracted.fallback()).isFalse();
+        assertThat(extracted.receipt().merchant()).isEqualTo("Hilltop Supply");
+        assertThat(extracted.receipt().total()).isEqualByComparingTo("4.90");
+        verify(deepSeekService, never()).completeAsync(any(), any());
+        assertThat(extractions("parser", "success")).isEqualTo(1);
+    }
+
+    @Test
+    void fallsBackToParseWhenDeepSeekFailsOrBreaksTheSchema() throws Exception {
+        answerWith(CompletableFuture.failedFuture(new IOException("timed out")));
+        ReceiptExtractor.Extraction afterFailure = extractor.extract(UNSURE).get(5, TimeUnit.SECONDS);
+        answerWith(CompletableFuture.completedFuture(new ChatCompletionResult("Total: 12.50", null)));
+        ReceiptExtractor.Extraction afterInvalidJson = extractor.extract(UNSURE).get(5, TimeUnit.SECONDS);
+
+        assertThat(afterFailure.fallback()).isTrue();
+        assertThat(afterFailure.receipt().merchant()).isEqualTo("Hilltop Supply");
+        assertThat(afterFailure.receipt().total()).isEqualByComparingTo("12.50");
+        assertThat(afterInvalidJson).isEqualTo(afterFailure);
+        assertThat(extractions("llm", "parser_fallback")).isEqualTo(2);
+    }
+
+    @Test
+    void waitsForAnEscalationToFinishOnceTheLimitIsReached() throws Exception {
+        extractor.shutdown();
+        extractor = extractor(1);
+        CompletableFuture<ChatCompletionResult> first = new CompletableFuture<>();
+        answerWith(first);
+        CompletableFuture<ReceiptExtractor.Extraction> firstReceipt = extractor.extract(UNSURE);
+
+        CompletableFuture<CompletableFuture<ReceiptExtractor.Extraction>> second =
+                CompletableFuture.supplyAsync(() -> extractor.extract(UNSURE));
+
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+        first.completeExceptionally(new IOException("timed out"));
+        assertThat(firstReceipt.get(5, TimeUnit.SECONDS).receipt().total()).isEqualByComparingTo("12.50");
+        assertThat(second.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).receipt().total()).isEqualByComparingTo("12.50");
+    }
+
+    @Test
+    void mapsAnswerFollowingTheSchema() throws IOException {
+        MainView.Receipt receipt = ReceiptExtractor.toReceipt("""
+                {"merchant": null, "total": 4.90,
+                 "lineItems": [{"name": "BREAD", "quantity": 1, "price": 2.50},
+                               {"name": "MILK", "quantity": 2, "price": 2.40}]}""");
+
+        assertThat(receipt.merchant()).isEqualTo(ReceiptParser.UNKNOWN_MERCHANT);
+        assertThat(receipt.total()).isEqualByComparingTo("4.90");
+        assertThat(receipt.lineItems()).containsExactly(
+                new MainView.LineItem("BREAD", 1, new BigDecimal("2.50")),
+                new MainView.LineItem("MILK", 2, new BigDecimal("2.40")));
+    }
+
+    @Test
+    void rejectsAnswerBreakingTheSchema() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> ReceiptExtractor.toReceipt("{\"merchant\": \"Shop\", \"total\": \"4.90\", \"lineItems\": []}"));
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> ReceiptExtractor.toReceipt(
+                "{\"merchant\": \"Shop\", \"total\": 4.9, \"lineItems\": [{\"name\": \"MILK\", \"quantity\": 1.5, \"price\": 1}]}"));
+    }
+
+    private ReceiptExtractor extractor(int maxInFlight) {
+        return new ReceiptExtractor(new ReceiptParser(), deepSeekService, meterRegistry, 0.8, true, 30000, 8000,
+                maxInFlight);
+    }
+
+    private void answerWith(CompletableFuture<ChatCompletionResult> answer) {
+        when(deepSeekService.completeAsync(any(), any())).thenReturn(answer);
+    }
+
+    private double extractions(String tier, String outcome) {
+        return meterRegistry.get("receipt.extraction").tag("tier", tier).tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,79 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ReceiptParserTest {
+
+    private final ReceiptParser parser = new ReceiptParser();
+
+    @Test
+    void extractsMerchantTotalAndLineItems() {
+        MainView.Receipt receipt = parser.parse("""
+                FRESH FOODS MARKET
+                Store #0412  1550 Main St
+                BANANAS ORGANIC   $1.29
+                Qty 2 GREEK YOGURT $5.98
+                Eggs large dozen  $3.19
+                Subtotal:         $1,010.46
+                Total :           $1,011.00
+                """);
+
+        assertThat(receipt.merchant()).isEqualTo("#0412  1550 Main St");
+        assertThat(receipt.total()).isEqualByComparingTo("1010.46");
+        assertThat(receipt.lineItems()).containsExactly(
+                new MainView.LineItem("BANANAS ORGANIC", 1, new BigDecimal("1.29")),
+                new MainView.LineItem("Qty", 2, new BigDecimal("5.98")),
+                new MainView.LineItem("Eggs large dozen", 1, new BigDecimal("3.19")),
+                new MainView.LineItem("Subtotal", 1, new BigDecimal("1010.46")),
+                new MainView.LineItem("Total", 1, new BigDecimal("1011.00")));
+    }
+
+    @Test
+    void takesMerchantFromNextLineAndTotalFromLaterLine() {
+        MainView.Receipt receipt = parser.parse("Vendor\n\n  Hilltop Supply  \nAMOUNT DUE:\n 12.50\n");
+
+        assertThat(receipt.merchant()).isEqualTo("Hilltop Supply");
+        assertThat(receipt.total()).isEqualByComparingTo("12.50");
+        assertThat(receipt.lineItems()).isEmpty();
+    }
+
+    @Test
+    void skipsNonPositiveQuantitiesAndLinesWithoutPrice() {
+        MainView.Receipt receipt = parser.parse("Qty 0 BANDAGES $3.49\nSOAP 2 $\nMILK $ 4\nTax: 1.00");
+
+        assertThat(receipt.merchant()).isEqualTo(ReceiptParser.UNKNOWN_MERCHANT);
+        assertThat(receipt.lineItems()).containsExactly(new MainView.LineItem("MILK", 1, new BigDecimal("4")));
+    }
+
+    @Test
+    void failsWithoutTotal() {
+        assertThatIllegalArgumentException().isThrownBy(() -> parser.parse("MILK $4.00"));
+    }
+
+    @Test
+    void findsFirstValidPrintedDate() {
+        assertThat(parser.parseDate("Tel 13/45/2024\nDate: 05/31/24 14:02\n")).isEqualTo(LocalDate.of(2024, 5, 31));
+        assertThat(parser.parseDate("2024-02-29 Total: 3.00")).isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(parser.parseDate("Datum 31.05.2024")).isEqualTo(LocalDate.of(2024, 5, 31));
+        assertThat(parser.parseDate("Total: 12.50")).isNull();
+    }
+
+    @Test
+    void scoresConfidenceByTotalItemSumAndMerchant() {
+        ReceiptParser.Result confident = parser.parseScored(
+                "Store: Corner Shop\nBREAD $2.50\nQty 2 MILK $2.40\nTax: 0.00\nSubtotal: 4.90\n");
+        ReceiptParser.Result itemsMissing = parser.parseScored("Store: Corner Shop\nBREAD $2.50\nSubtotal: 4.90\n");
+        ReceiptParser.Result noTotal = parser.parseScored("BREAD $2.50");
+
+        assertThat(confident.confidence()).isEqualTo(1.0);
+        assertThat(itemsMissing.confidence()).isEqualTo(0.7);
+        assertThat(noTotal.confidence()).isZero();
+        assertThat(noTotal.receipt().total()).isNull();
+    }
+}
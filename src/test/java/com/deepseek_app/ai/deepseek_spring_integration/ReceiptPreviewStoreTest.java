@@ -0,0 +1,56 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReceiptPreviewStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsLeastRecentlyViewedPreviewPastTheByteCap() throws IOException {
+        ReceiptPreviewStore store = new ReceiptPreviewStore(directory.resolve("previews").toString(), 250);
+        SpooledUpload first = image("first", 100);
+        SpooledUpload second = image("second", 100);
+
+        assertThat(store.put(first)).isTrue();
+        assertThat(store.put(second)).isTrue();
+        try (InputStream in = store.open(first.getSha256())) {
+            assertThat(in.readAllBytes()).hasSize(100);
+        }
+        // The spool file may go, the preview is a copy
+        Files.delete(first.getPath());
+        assertThat(store.put(image("third", 100))).isTrue();
+
+        assertThat(store.contains(first.getSha256())).isTrue();
+        assertThat(store.contains(second.getSha256())).isFalse();
+        assertThatThrownBy(() -> store.open(second.getSha256())).isInstanceOf(NoSuchFileException.class);
+        assertThat(store.getTotalBytes()).isEqualTo(200);
+    }
+
+    @Test
+    void skipsFormatsBrowsersCannotShow() throws IOException {
+        ReceiptPreviewStore store = new ReceiptPreviewStore(directory.resolve("previews").toString(), 1000);
+        Path tiff = Files.write(directory.resolve("scan.tif"), new byte[10]);
+
+        assertThat(store.put(SpooledUpload.ofExistingFile(tiff, ContentHash.sha256Hex(tiff)))).isFalse();
+        assertThat(store.getTotalBytes()).isZero();
+    }
+
+    private SpooledUpload image(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        content[0] = (byte) name.hashCode();
+        Path file = Files.write(directory.resolve(name + ".png"), content);
+        return SpooledUpload.ofExistingFile(file, ContentHash.sha256Hex(content));
+    }
+}
@@ -0,0 +1,89 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiptStoreTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .addScript("schema.sql")
+            .build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReceiptStore store = new ReceiptStore(new NamedParameterJdbcTemplate(database),
+            new DataSourceTransactionManager(database), meterRegistry, 500, 100, 500);
+
+    @AfterEach
+    void close() throws InterruptedException {
+        store.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void findsMerchantReceiptsOverAmountInMonthPageByPage() throws InterruptedException {
+        store.add(receipt("a", "Fresh Foods", LocalDate.of(2024, 5, 3), "80.00"));
+        store.add(receipt("b", "FRESH FOODS", LocalDate.of(2024, 5, 20), "120.00"));
+        store.add(receipt("c", "Fresh Foods", LocalDate.of(2024, 5, 28), "250.00"));
+        store.add(receipt("d", "Fresh Foods", LocalDate.of(2024, 6, 1), "300.00"));
+        store.add(receipt("e", "Hilltop Supply", LocalDate.of(2024, 5, 10), "500.00"));
+        // A re-upload of the same image replaces the first one
+        store.add(receipt("c", "Fresh Foods", LocalDate.of(2024, 5, 28), "260.00"));
+        store.flush();
+
+        ReceiptQuery query = new ReceiptQuery(" fresh foods", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31),
+                new BigDecimal("100"), null, 0, 10);
+        ReceiptPage page = store.search(query);
+
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.size()).isEqualTo(10);
+        assertThat(page.items()).extracting(StoredReceipt::id).containsExactly("c", "b");
+        assertThat(page.items().get(0).total()).isEqualByComparingTo("260.00");
+        assertThat(page.items().get(0).lineItems()).containsExactly(
+                new MainView.LineItem("BREAD", 1, new BigDecimal("2.5000")),
+                new MainView.LineItem("MILK", 2, new BigDecimal("1.2000")));
+
+        ReceiptPage all = store.search(new ReceiptQuery(null, null, null, null, null, 0, 2));
+        assertThat(all.hasMore()).isTrue();
+        assertThat(store.search(new ReceiptQuery(null, null, null, null, null, 2, 2)).items())
+                .extracting(StoredReceipt::id).containsExactly("a");
+        assertThat(store.find("e").merchant()).isEqualTo("Hilltop Supply");
+        assertThat(store.find("missing")).isNull();
+    }
+
+    @Test
+    void badRowOnlyLosesItselfNotItsBatch() throws InterruptedException {
+        StoredReceipt noTotal = new StoredReceipt("bad", "bad.jpg", "Fresh Foods", LocalDate.of(2024, 5, 4), null,
+                List.of(), Instant.now());
+        // Queued before the writer wakes up, so all three go into one batch
+        store.add(receipt("a", "Fresh Foods", LocalDate.of(2024, 5, 3), "80.00"));
+        store.add(noTotal);
+        store.add(receipt("b", "Fresh Foods", LocalDate.of(2024, 5, 5), "90.00"));
+        store.flush();
+
+        assertThat(store.find("a")).isNotNull();
+        assertThat(store.find("b").lineItems()).hasSize(2);
+        assertThat(store.find("bad")).isNull();
+        assertThat(meterRegistry.get("receipt.store.failed").counter().count()).isEqualTo(1);
+    }
+
+    private static StoredReceipt receipt(String id, String merchant, LocalDate date, String total) {
+        return new StoredReceipt(id, id + ".jpg", merchant, date, new BigDecimal(total),
+                List.of(new MainView.LineItem("BREAD", 1, new BigDecimal("2.50")),
+                        new MainView.LineItem("MILK", 2, new BigDecimal("1.20"))),
+                Instant.now());
+    }
+}
@@ -0,0 +1,177 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for the chat completions API. Every path answers like
+ * {@code /v1/chat/completions}, after a configurable latency; streamed requests get SSE chunks
+ * with a delay between them. A configurable share of requests fails with an error status
+ * instead, spread evenly so a run of N requests fails exactly {@code N * errorRate} of them.
+ */
+final class StubDeepSeekServer implements AutoCloseable {
+
+    private static final String COMPLETION = """
+            {"id":"stub-%d","object":"chat.completion","model":"deepseek-chat",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":%d,"completion_tokens":%d,"total_tokens":%d,
+                      "prompt_cache_hit_tokens":0,"prompt_cache_miss_tokens":%d}}""";
+    private static final String CHUNK = """
+            {"id":"stub-%d","object":"chat.completion.chunk","model":"deepseek-chat",
+             "choices":[{"index":0,"delta":{"content":"%s"},"finish_reason":null}]}""";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long latencyMs = 50;
+    private volatile long jitterMs;
+    private volatile int streamChunks = 8;
+    private volatile long chunkDelayMs = 5;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile String answer = "Stub answer from the load test server.";
+
+    private StubDeepSeekServer() throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Latency is a sleep, so every request in flight needs its own thread
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-deepseek-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static StubDeepSeekServer start() throws IOException {
+        return new StubDeepSeekServer();
+    }
+
+    /** The base URL, for clients that append {@code /v1/chat/completions} themselves. */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String getCompletionsUrl() {
+        return getBaseUrl() + "/v1/chat/completions";
+    }
+
+    StubDeepSeekServer latency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    StubDeepSeekServer streaming(int chunks, long chunkDelayMs) {
+        this.streamChunks = chunks;
+        this.chunkDelayMs = chunkDelayMs;
+        return this;
+    }
+
+    StubDeepSeekServer errors(double rate, int status) {
+        this.errorRate = rate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    StubDeepSeekServer answer(String answer) {
+        this.answer = answer;
+        return this;
+    }
+
+    /** Back to 50 ms latency, no errors and the default answer. */
+    void reset() {
+        latency(50, 0).streaming(8, 5).errors(0, 503).answer("Stub answer from the load test server.");
+        requests.set(0);
+        failures.set(0);
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long getFailureCount() {
+        return failures.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            long id = requests.incrementAndGet();
+            sleep(latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0));
+            double rate = errorRate;
+            if (rate > 0 && (long) (id * rate) > (long) ((id - 1) * rate)) {
+                failures.incrementAndGet();
+                byte[] error = "{\"error\":{\"message\":\"injected failure\",\"type\":\"stub\"}}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(errorStatus, error.length);
+                exchange.getResponseBody().write(error);
+                return;
+            }
+            if (body.replace(" ", "").contains("\"stream\":true")) {
+                stream(exchange, id);
+            } else {
+                int promptTokens = TokenEstimator.estimate(body);
+                int completionTokens = TokenEstimator.estimate(answer);
+                byte[] response = String.format(COMPLETION, id, answer, promptTokens, completionTokens,
+                        promptTokens + completionTokens, promptTokens).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                exchange.getResponseBody().write(response);
+            }
+        }
+    }
+
+    private void stream(HttpExchange exchange, long id) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        // 0 means chunked, the length is not known up front
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < streamChunks; i++) {
+            if (i > 0) {
+                sleep(chunkDelayMs);
+            }
+            out.write(("data: " + String.format(CHUNK, id, "token" + i + " ").replace("\n", "") + "\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,158 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import net.sourceforge.tess4j.TesseractException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TesseractPoolTest {
+
+    @Test
+    void failedBackgroundWarmUpLetsReadinessPass() throws InterruptedException {
+        TesseractPool pool = new TesseractPool("/no/such/tessdata", "eng", 3, 2, 100, 500, true);
+        TesseractHealthIndicator health = new TesseractHealthIndicator(pool);
+
+        pool.startWarmUp();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pool.isWarmingUp() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        // Native library missing or no traineddata, either way OCR falls back to lazy engines
+        assertThat(pool.isWarmingUp()).isFalse();
+        assertThat(pool.getWarmUpFailure()).isNotNull();
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+        pool.shutdown();
+    }
+
+    @Test
+    void borrowerWaitsForBusyEnginesUntilTheAcquireTimeout() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FakePool pool = new FakePool(1, 100, image -> {
+            inside.countDown();
+            release.await();
+            return "text";
+        });
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.recognize(image());
+            } catch (TesseractException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pool.recognize(image()))
+                .isInstanceOf(TesseractException.class)
+                .hasMessageContaining("No Tesseract engine available after 100 ms");
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("text");
+        assertThat(pool.engines).hasSize(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        pool.shutdown();
+    }
+
+    @Test
+    void unhealthyEngineIsDiscardedAndReplaced() throws Exception {
+        FakePool pool = new FakePool(1, 1000, image -> {
+            throw new IllegalStateException("native crash");
+        });
+
+        assertThatThrownBy(() -> pool.recognize(image())).isInstanceOf(IllegalStateException.class);
+        assertThat(pool.engines.get(0).closed).isTrue();
+        assertThat(pool.getIdleCount()).isZero();
+
+        pool.behaviour = image -> "text";
+        assertThat(pool.recognize(image())).isEqualTo("text");
+        assertThat(pool.engines).hasSize(2);
+        assertThat(pool.engines.get(1).closed).isFalse();
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        pool.shutdown();
+    }
+
+    @Test
+    void warmUpOnlyFillsTheSlotsUploadsLeftFree() throws Exception {
+        FakePool pool = new FakePool(2, 1000, image -> "text");
+        pool.recognize(image());
+
+        pool.warmUp();
+
+        assertThat(pool.getWarmUpFailure()).isNull();
+        assertThat(pool.engines).hasSize(2);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        pool.recognize(image());
+        assertThat(pool.engines).hasSize(2);
+        pool.shutdown();
+    }
+
+    private static BufferedImage image() {
+        return new BufferedImage(8, 8, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    @FunctionalInterface
+    private interface Behaviour {
+        String recognize(BufferedImage image) throws Exception;
+    }
+
+    /** Engines without the native library, recognising however the test says. */
+    private static final class FakePool extends TesseractPool {
+
+        final List<FakeEngine> engines = new CopyOnWriteArrayList<>();
+        volatile Behaviour behaviour;
+
+        FakePool(int poolSize, long acquireTimeoutMs, Behaviour behaviour) {
+            super("/no/such/tessdata", "eng", 3, poolSize, acquireTimeoutMs, 500, false);
+            this.behaviour = behaviour;
+        }
+
+        @Override
+        TesseractEngine createEngine() {
+            FakeEngine engine = new FakeEngine(this);
+            engines.add(engine);
+            return engine;
+        }
+    }
+
+    private static final class FakeEngine extends TesseractEngine {
+
+        private final FakePool pool;
+        volatile boolean closed;
+
+        FakeEngine(FakePool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public String recognize(BufferedImage image) throws TesseractException {
+            try {
+                return pool.behaviour.recognize(image);
+            } catch (RuntimeException | TesseractException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new TesseractException(e);
+            }
+        }
+
+        @Override
+        int getUses() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.deepseek_app.ai.deepseek_spring_integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spoolsOnceAndDeletesAfterLastRelease() throws IOException {
+        byte[] content = "receipt image bytes".getBytes(StandardCharsets.UTF_8);
+        UploadSpool.SpoolReceiver receiver = new UploadSpool(directory.toString(), 1024, new SimpleMeterRegistry()).newReceiver();
+
+        try (OutputStream out = receiver.receiveUpload("receipt.png", "image/png")) {
+            out.write(content, 0, 7);
+            out.write(content, 7, content.length - 7);
+        }
+        SpooledUpload upload = receiver.take();
+
+        assertThat(upload.getSizeBytes()).isEqualTo(content.length);
+        assertThat(upload.getSha256()).isEqualTo(ContentHash.sha256Hex(content));
+        assertThat(Files.readAllBytes(upload.getPath())).isEqualTo(content);
+
+        upload.retain();
+        upload.release();
+        assertThat(upload.getPath()).exists();
+        upload.release();
+        assertThat(upload.getPath()).doesNotExist();
+    }
+
+    @Test
+    void discardDeletesPartialUpload() throws IOException {
+        UploadSpool.SpoolReceiver receiver = new UploadSpool(directory.toString(), 1024, new SimpleMeterRegistry()).newReceiver();
+        OutputStream out = receiver.receiveUpload("receipt.png", "image/png");
+        out.write(new byte[]{1, 2, 3});
+
+        receiver.discard();
+
+        assertThat(receiver.take()).isNull();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void oversizedUploadIsCutOffAndDeleted() throws IOException {
+        UploadSpool.SpoolReceiver receiver = new UploadSpool(directory.toString(), 10, new SimpleMeterRegistry()).newReceiver();
+        OutputStream out = receiver.receiveUpload("huge.png", "image/png");
+        out.write(new byte[8]);
+
+        assertThatThrownBy(() -> out.write(new byte[8]))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("larger than 10 bytes");
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+        receiver.discard();
+        assertThat(receiver.take()).isNull();
+    }
+}